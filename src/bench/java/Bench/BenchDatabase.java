@@ -0,0 +1,58 @@
+package Bench;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import DAO.MessageDAO;
+import Model.Message;
+import Util.ConnectionUtil;
+
+/**
+ * Prepares the benchmark database. The schema and the single seed account come from SocialMedia.sql, and messages
+ * are bulk inserted on top until the table holds the requested number of rows. A database that already has the
+ * right number of rows is reused, so repeated forks with the same dataset size skip seeding.
+ */
+public final class BenchDatabase {
+    private static final int INSERT_BATCH = 10000;
+
+    private BenchDatabase() {
+    }
+
+    /**
+     * @param rows the number of messages the Message table must hold
+     * @throws SQLException if the database cannot be prepared
+     */
+    public static void ensureMessages(int rows) throws SQLException {
+        if (countMessages() == rows) {
+            return;
+        }
+        ConnectionUtil.resetTestDatabase();
+        MessageDAO messageDAO = new MessageDAO(null);
+        // The script already inserts one message.
+        int remaining = rows - 1;
+        while (remaining > 0) {
+            int size = Math.min(INSERT_BATCH, remaining);
+            List<Message> batch = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                batch.add(new Message(1, "benchmark message " + (rows - remaining + i), 1669947792L + i));
+            }
+            messageDAO.createMessages(batch);
+            remaining -= size;
+        }
+    }
+
+    private static int countMessages() {
+        try (Connection conn = ConnectionUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM Message;");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : -1;
+        } catch (SQLException e) {
+            // The tables do not exist yet.
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package Bench;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH suite once per requested thread count and writes one JSON result file per run to target/jmh, so
+ * results from two versions of the code can be diffed file by file.
+ *
+ * System properties:
+ *  bench.threads - comma separated thread counts, default 1,4,16
+ *  bench.args    - extra JMH command line arguments, e.g. "MessageDAOBenchmark -p rows=1000 -f 1"
+ *
+ * Every forked benchmark JVM uses its own H2 database under target/bench-db so benchmarks never touch ./h2/db.
+ */
+public class BenchRunner {
+    public static void main(String[] args) throws Exception {
+        String[] threadCounts = System.getProperty("bench.threads", "1,4,16").split(",");
+        String extraArgs = System.getProperty("bench.args", "").trim();
+        CommandLineOptions commandLine = new CommandLineOptions(splitArgs(extraArgs));
+
+        File resultDir = new File("target/jmh");
+        if (!resultDir.isDirectory() && !resultDir.mkdirs()) {
+            throw new IllegalStateException("Could not create " + resultDir);
+        }
+
+        for (String threadCount : threadCounts) {
+            int threads = Integer.parseInt(threadCount.trim());
+            Options options = new OptionsBuilder()
+                    .parent(commandLine)
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(resultDir, "result-t" + threads + ".json").getPath())
+                    .jvmArgsAppend("-Ddb.url=jdbc:h2:./target/bench-db/db;", "-Dpool.maxSize=" + Math.max(10, threads))
+                    .build();
+            new Runner(options).run();
+        }
+    }
+
+    private static String[] splitArgs(String args) {
+        List<String> parts = new ArrayList<>();
+        for (String part : args.split("\\s+")) {
+            if (!part.isEmpty()) {
+                parts.add(part);
+            }
+        }
+        return parts.toArray(new String[0]);
+    }
+}
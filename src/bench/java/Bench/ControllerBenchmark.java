@@ -0,0 +1,101 @@
+package Bench;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Controller.SocialMediaController;
+import io.javalin.Javalin;
+
+/**
+ * End-to-end HTTP calls against an embedded instance of the API on a free local port, covering routing, JSON
+ * handling in SocialMediaController and everything below it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ControllerBenchmark {
+    @Param({"1000"})
+    public int rows;
+
+    private Javalin app;
+    private HttpClient webClient;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        BenchDatabase.ensureMessages(rows);
+        app = new SocialMediaController().startAPI().start(0);
+        baseUrl = "http://localhost:" + app.port();
+        // HTTP/1.1 avoids an h2c upgrade attempt on every request, which Jetty here does not accept anyway
+        webClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        app.stop();
+    }
+
+    @Benchmark
+    public String getMessageById() throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/messages/" + ThreadLocalRandom.current().nextInt(1, rows + 1)))
+                .build());
+    }
+
+    @Benchmark
+    public String getMessagesPage() throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/messages?limit=100"))
+                .build());
+    }
+
+    @Benchmark
+    public String login() throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/login"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"testuser1\",\"password\":\"password\"}"))
+                .header("Content-Type", "application/json")
+                .build());
+    }
+
+    @Benchmark
+    public String postMessage() throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"posted_by\":1,\"message_text\":\"benchmark post\",\"time_posted_epoch\":1669947792}"))
+                .header("Content-Type", "application/json")
+                .build());
+    }
+
+    private String send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Unexpected status " + response.statusCode() + " from " + request.uri());
+        }
+        return response.body();
+    }
+}
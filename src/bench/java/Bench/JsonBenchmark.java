@@ -0,0 +1,101 @@
+package Bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Model.Account;
+import Model.Message;
+import Util.JsonCodec;
+
+/**
+ * Account and Message (de)serialization through a shared Jackson ObjectMapper, which is what Javalin's default
+ * JSON mapper does, against the reflection-free readers and writers in JsonCodec that the API now uses.
+ *
+ * The patch* pair compares reading a PATCH /messages/{id} body the old way, with a new ObjectMapper and a JsonNode
+ * tree per request, with the streaming message_text parser. Run with {@code -Dbench.args="JsonBenchmark -prof gc"}
+ * to see bytes allocated per operation alongside the time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Account account = new Account(1, "testuser1", "password");
+    private final Message message = new Message(1, 1, "test message 1", 1669947792L);
+    private final String accountJson = "{\"account_id\":1,\"username\":\"testuser1\",\"password\":\"password\"}";
+    private final String messageJson =
+            "{\"message_id\":1,\"posted_by\":1,\"message_text\":\"test message 1\",\"time_posted_epoch\":1669947792}";
+    private final byte[] patchBody = "{\"message_text\":\"updated message\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Benchmark
+    public String serializeAccount() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(account);
+    }
+
+    @Benchmark
+    public Account deserializeAccount() throws JsonProcessingException {
+        return objectMapper.readValue(accountJson, Account.class);
+    }
+
+    @Benchmark
+    public String serializeMessage() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(message);
+    }
+
+    @Benchmark
+    public Message deserializeMessage() throws JsonProcessingException {
+        return objectMapper.readValue(messageJson, Message.class);
+    }
+
+    @Benchmark
+    public String serializeAccountCodec() throws IOException {
+        return JsonCodec.toJson(account);
+    }
+
+    @Benchmark
+    public Account deserializeAccountCodec() throws IOException {
+        return JsonCodec.readAccount(accountJson);
+    }
+
+    @Benchmark
+    public String serializeMessageCodec() throws IOException {
+        return JsonCodec.toJson(message);
+    }
+
+    @Benchmark
+    public Message deserializeMessageCodec() throws IOException {
+        return JsonCodec.readMessage(messageJson);
+    }
+
+    @Benchmark
+    public String patchBodyObjectMapperPerRequest() throws IOException {
+        String body = new String(patchBody, StandardCharsets.UTF_8);
+        JsonNode rootNode = new ObjectMapper().readTree(body);
+        return rootNode.path("message_text").asText();
+    }
+
+    @Benchmark
+    public String patchBodyStreaming() throws IOException {
+        return JsonCodec.readMessageText(new ByteArrayInputStream(patchBody));
+    }
+}
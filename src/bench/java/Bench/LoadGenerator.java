@@ -0,0 +1,342 @@
+package Bench;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import Controller.SocialMediaController;
+import DAO.MessageDAO;
+import Model.Account;
+import Model.Message;
+import Service.AccountService;
+import Util.ConnectionUtil;
+import Util.LatencyHistogram;
+import io.javalin.Javalin;
+
+/**
+ * An open-loop HTTP load generator for all eight API routes, run against an embedded instance of the application.
+ *
+ * Requests are scheduled at a constant arrival rate regardless of how fast earlier requests complete. Latency is
+ * measured from each request's intended start time, not from when a worker got around to sending it, so time spent
+ * queued behind a slow server is counted (the "coordinated omission" correction). The uncorrected service time is
+ * reported alongside for comparison.
+ *
+ * Run with the bench profile, e.g.
+ *   mvn -Pbench compile exec:java -Dexec.mainClass=Bench.LoadGenerator -Dexec.args="--rate 2000 --duration 30"
+ *
+ * Options (all optional):
+ *   --rate N          requests per second, default 500
+ *   --duration S      measured seconds, default 30
+ *   --warmup S        unmeasured seconds before measuring, default 5
+ *   --workers N       concurrent client connections, default 64
+ *   --accounts N      accounts seeded before the run, default 100
+ *   --messages N      messages seeded before the run, default 10000
+ *   --mix SPEC        weights per operation, e.g. get_message=60,create_message=20 (see Operation)
+ *   --port N          port for the embedded server, default 0 (any free port)
+ *   --json FILE       also write the results as JSON to FILE
+ *
+ * The embedded server uses the database named by -Ddb.url, which this tool resets and seeds, so it must be
+ * disposable. Without -Ddb.url it uses the scratch database at SCRATCH_DB_URL rather than the app's own ./h2/db.
+ */
+public class LoadGenerator {
+    /**
+     * The operations the generator can issue, one per route.
+     */
+    enum Operation {
+        REGISTER, LOGIN, CREATE_MESSAGE, GET_ALL_MESSAGES, GET_MESSAGE, DELETE_MESSAGE, UPDATE_MESSAGE,
+        GET_ACCOUNT_MESSAGES
+    }
+
+    // Used when no -Ddb.url is given, like BenchRunner's target/bench-db, so a run never wipes the app's database
+    private static final String SCRATCH_DB_URL = "jdbc:h2:./target/load-db/db;";
+    private static final String DEFAULT_MIX = "get_message=40,get_account_messages=20,create_message=15,"
+            + "get_all_messages=2,update_message=10,delete_message=3,login=8,register=2";
+
+    private final HttpClient webClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final Map<Operation, LatencyHistogram> corrected = new EnumMap<>(Operation.class);
+    private final Map<Operation, LatencyHistogram> uncorrected = new EnumMap<>(Operation.class);
+    private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+    private final AtomicInteger maxMessageId = new AtomicInteger();
+    private final AtomicInteger registrations = new AtomicInteger();
+    private final Operation[] weightedOperations;
+    private final int accounts;
+    private String baseUrl;
+    private volatile boolean recording;
+
+    LoadGenerator(Map<Operation, Integer> mix, int accounts) {
+        List<Operation> weighted = new ArrayList<>();
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                weighted.add(entry.getKey());
+            }
+        }
+        if (weighted.isEmpty()) {
+            throw new IllegalArgumentException("The workload mix must give at least one operation a weight.");
+        }
+        this.weightedOperations = weighted.toArray(new Operation[0]);
+        this.accounts = accounts;
+        for (Operation operation : Operation.values()) {
+            corrected.put(operation, new LatencyHistogram());
+            uncorrected.put(operation, new LatencyHistogram());
+            errors.put(operation, new AtomicLong());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Must be set before anything touches ConnectionUtil, which reads db.url once
+        if (System.getProperty("db.url") == null) {
+            System.setProperty("db.url", SCRATCH_DB_URL);
+        }
+        Map<String, String> options = parseOptions(args);
+        int rate = Integer.parseInt(options.getOrDefault("rate", "500"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        int workers = Integer.parseInt(options.getOrDefault("workers", "64"));
+        int accounts = Integer.parseInt(options.getOrDefault("accounts", "100"));
+        int messages = Integer.parseInt(options.getOrDefault("messages", "10000"));
+        int port = Integer.parseInt(options.getOrDefault("port", "0"));
+
+        LoadGenerator generator = new LoadGenerator(parseMix(options.getOrDefault("mix", DEFAULT_MIX)), accounts);
+        generator.seed(accounts, messages);
+        Javalin app = new SocialMediaController().startAPI().start(port);
+        try {
+            generator.baseUrl = "http://localhost:" + app.port();
+            System.out.printf("Warming up for %d s at %d req/s%n", warmup, rate);
+            generator.run(rate, warmup, workers, false);
+            System.out.printf("Measuring for %d s at %d req/s with %d workers%n", duration, rate, workers);
+            long elapsedNanos = generator.run(rate, duration, workers, true);
+            generator.printReport(elapsedNanos);
+            if (options.containsKey("json")) {
+                generator.writeJson(options.get("json"), rate, elapsedNanos);
+            }
+        } finally {
+            app.stop();
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Resets the database and fills it with accounts and messages.
+     */
+    void seed(int accounts, int messages) throws Exception {
+        ConnectionUtil.resetTestDatabase();
+        AccountService accountService = new AccountService();
+        // The script already creates account 1 (testuser1/password).
+        for (int i = 2; i <= accounts; i++) {
+            accountService.registerAccount(new Account("loaduser" + i, "password"));
+        }
+        MessageDAO messageDAO = new MessageDAO(null);
+        List<Message> batch = new ArrayList<>();
+        for (int i = 1; i < messages; i++) {
+            batch.add(new Message(1 + i % accounts, "seeded message " + i, 1669947792L + i));
+            if (batch.size() == 10000) {
+                messageDAO.createMessages(batch);
+                batch.clear();
+            }
+        }
+        messageDAO.createMessages(batch);
+        maxMessageId.set(messages);
+    }
+
+    /**
+     * Issues requests at a constant rate for the given number of seconds.
+     *
+     * @return the elapsed time in nanoseconds
+     */
+    long run(int rate, int seconds, int workers, boolean record) throws InterruptedException {
+        recording = record;
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, rate);
+        long total = (long) rate * seconds;
+        long start = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            long intendedStart = start + i * intervalNanos;
+            long wait = intendedStart - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = weightedOperations[ThreadLocalRandom.current().nextInt(weightedOperations.length)];
+            pool.execute(() -> issue(operation, intendedStart));
+        }
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.MINUTES);
+        return System.nanoTime() - start;
+    }
+
+    private void issue(Operation operation, long intendedStart) {
+        long actualStart = System.nanoTime();
+        boolean ok;
+        try {
+            HttpResponse<String> response = webClient.send(request(operation), HttpResponse.BodyHandlers.ofString());
+            ok = response.statusCode() == 200;
+            if (ok && operation == Operation.CREATE_MESSAGE) {
+                trackCreatedMessage(response.body());
+            }
+        } catch (IOException | RuntimeException e) {
+            ok = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        long end = System.nanoTime();
+        if (recording) {
+            corrected.get(operation).record(end - intendedStart);
+            uncorrected.get(operation).record(end - actualStart);
+            if (!ok) {
+                errors.get(operation).incrementAndGet();
+            }
+        }
+    }
+
+    private HttpRequest request(Operation operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int messageId = random.nextInt(1, Math.max(2, maxMessageId.get() + 1));
+        int accountId = random.nextInt(1, accounts + 1);
+        switch (operation) {
+            case REGISTER:
+                return post("/register", "{\"username\":\"loadnew" + registrations.incrementAndGet() + "-"
+                        + System.nanoTime() + "\",\"password\":\"password\"}");
+            case LOGIN:
+                return post("/login", "{\"username\":\"testuser1\",\"password\":\"password\"}");
+            case CREATE_MESSAGE:
+                return post("/messages", "{\"posted_by\":" + accountId + ",\"message_text\":\"load message\","
+                        + "\"time_posted_epoch\":" + (System.currentTimeMillis() / 1000) + "}");
+            case GET_ALL_MESSAGES:
+                return get("/messages");
+            case GET_MESSAGE:
+                return get("/messages/" + messageId);
+            case DELETE_MESSAGE:
+                return HttpRequest.newBuilder(URI.create(baseUrl + "/messages/" + messageId)).DELETE().build();
+            case UPDATE_MESSAGE:
+                return HttpRequest.newBuilder(URI.create(baseUrl + "/messages/" + messageId))
+                        .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"message_text\":\"edited\"}"))
+                        .header("Content-Type", "application/json")
+                        .build();
+            case GET_ACCOUNT_MESSAGES:
+                return get("/accounts/" + accountId + "/messages?limit=50");
+            default:
+                throw new IllegalStateException("Unknown operation " + operation);
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).build();
+    }
+
+    private HttpRequest post(String path, String body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+    }
+
+    private void trackCreatedMessage(String body) {
+        int start = body.indexOf("\"message_id\":");
+        if (start < 0) {
+            return;
+        }
+        int from = start + "\"message_id\":".length();
+        int to = from;
+        while (to < body.length() && Character.isDigit(body.charAt(to))) {
+            to++;
+        }
+        if (to > from) {
+            maxMessageId.accumulateAndGet(Integer.parseInt(body.substring(from, to)), Math::max);
+        }
+    }
+
+    private void printReport(long elapsedNanos) {
+        System.out.printf(Locale.ROOT, "%n%-22s %9s %7s %10s %10s %10s %10s %12s%n",
+                "operation", "count", "errors", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "svc p99 ms");
+        LatencyHistogram all = new LatencyHistogram();
+        long allErrors = 0;
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = corrected.get(operation);
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            System.out.printf(Locale.ROOT, "%-22s %9d %7d %10.2f %10.2f %10.2f %10.2f %12.2f%n",
+                    operation.name().toLowerCase(Locale.ROOT), histogram.getCount(), errors.get(operation).get(),
+                    millis(histogram.getPercentile(50)), millis(histogram.getPercentile(99)),
+                    millis(histogram.getPercentile(99.9)), millis(histogram.getMax()),
+                    millis(uncorrected.get(operation).getPercentile(99)));
+            allErrors += errors.get(operation).get();
+        }
+        long count = 0;
+        for (LatencyHistogram histogram : corrected.values()) {
+            count += histogram.getCount();
+        }
+        System.out.printf(Locale.ROOT, "%ntotal %d requests, %d errors, achieved %.1f req/s%n", count, allErrors,
+                count / (elapsedNanos / 1e9));
+    }
+
+    private void writeJson(String file, int rate, long elapsedNanos) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            out.printf(Locale.ROOT, "{\"target_rate\":%d,\"elapsed_seconds\":%.3f,\"operations\":{", rate,
+                    elapsedNanos / 1e9);
+            boolean first = true;
+            for (Operation operation : Operation.values()) {
+                LatencyHistogram histogram = corrected.get(operation);
+                if (histogram.getCount() == 0) {
+                    continue;
+                }
+                out.printf(Locale.ROOT, "%s\"%s\":{\"count\":%d,\"errors\":%d,\"p50_ns\":%d,\"p99_ns\":%d,"
+                                + "\"p999_ns\":%d,\"max_ns\":%d,\"service_p99_ns\":%d}",
+                        first ? "" : ",", operation.name().toLowerCase(Locale.ROOT), histogram.getCount(),
+                        errors.get(operation).get(), histogram.getPercentile(50), histogram.getPercentile(99),
+                        histogram.getPercentile(99.9), histogram.getMax(),
+                        uncorrected.get(operation).getPercentile(99));
+                first = false;
+            }
+            out.println("}}");
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    static Map<Operation, Integer> parseMix(String spec) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Bad mix entry '" + part + "', expected operation=weight.");
+            }
+            mix.put(Operation.valueOf(pair[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(pair[1].trim()));
+        }
+        return mix;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected '--option value' pairs but got '" + args[i] + "'.");
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+}
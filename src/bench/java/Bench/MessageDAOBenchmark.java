@@ -0,0 +1,66 @@
+package Bench;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import DAO.MessageDAO;
+import Model.Message;
+
+/**
+ * Read paths of MessageDAO against tables of increasing size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageDAOBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private MessageDAO messageDAO;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        BenchDatabase.ensureMessages(rows);
+        messageDAO = new MessageDAO(null);
+    }
+
+    @Benchmark
+    public Message getMessageById() throws SQLException {
+        return messageDAO.getMessageById(ThreadLocalRandom.current().nextInt(1, rows + 1));
+    }
+
+    @Benchmark
+    public List<Message> getAllMessages() throws SQLException {
+        return messageDAO.getAllMessages();
+    }
+
+    @Benchmark
+    public void streamAllMessages(Blackhole blackhole) throws SQLException, IOException {
+        messageDAO.streamAllMessages(blackhole::consume);
+    }
+
+    @Benchmark
+    public List<Message> getMessagesPage() throws SQLException {
+        return messageDAO.getMessagesAfter(ThreadLocalRandom.current().nextInt(0, rows), 100);
+    }
+}
@@ -0,0 +1,90 @@
+package Bench;
+
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import DAO.MessageDAO;
+import DAO.MessageStore;
+import DAO.StorageEngine;
+import Model.Message;
+
+/**
+ * The same MessageStore calls against each storage engine: MessageDAO on H2, the in-memory store and the
+ * memory-mapped message log. The log and in-memory stores start as a copy of the benchmark table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageStoreBenchmark {
+    @Param({"h2", "memory", "log"})
+    public String engine;
+
+    @Param({"100000"})
+    public int rows;
+
+    private StorageEngine storage;
+    private MessageStore messageStore;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchDatabase.ensureMessages(rows);
+        switch (engine) {
+            case "h2":
+                // No group commit, so every insert is its own transaction as in the default configuration
+                messageStore = new MessageDAO(null);
+                return;
+            case "memory":
+                storage = StorageEngine.memory(true);
+                break;
+            case "log":
+                storage = StorageEngine.log(Files.createTempDirectory("message-log-bench"), true, true);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown engine: " + engine);
+        }
+        messageStore = storage.getMessageStore();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (storage != null) {
+            storage.close();
+        }
+    }
+
+    @Benchmark
+    public Message getMessageById() throws SQLException {
+        return messageStore.getMessageById(ThreadLocalRandom.current().nextInt(1, rows + 1));
+    }
+
+    @Benchmark
+    public Message updateMessageText() throws SQLException {
+        int id = ThreadLocalRandom.current().nextInt(1, rows + 1);
+        return messageStore.updateMessageText(id, "benchmark update " + id);
+    }
+
+    @Benchmark
+    public Message createMessage() throws SQLException {
+        // Newer than every seeded message, as a live post would be, so timelines append rather than insert
+        return messageStore.createMessage(new Message(1, "benchmark insert", System.currentTimeMillis()));
+    }
+}
@@ -0,0 +1,70 @@
+package Bench;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import DAO.GroupCommitQueue;
+import DAO.MessageDAO;
+import Model.Message;
+
+/**
+ * MessageDAO.createMessage with direct autocommit inserts versus the group-commit queue. Run with several thread
+ * counts: group commit only helps when concurrent inserts are available to share a commit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageWriteBenchmark {
+    @Param({"false", "true"})
+    public boolean groupCommit;
+
+    @Param({"64"})
+    public int maxBatchSize;
+
+    @Param({"200"})
+    public long lingerMicros;
+
+    private GroupCommitQueue<Message> queue;
+    private MessageDAO messageDAO;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        BenchDatabase.ensureMessages(1000);
+        MessageDAO direct = new MessageDAO(null);
+        if (groupCommit) {
+            queue = new GroupCommitQueue<>("bench", direct::createMessages, maxBatchSize, lingerMicros);
+            messageDAO = new MessageDAO(queue);
+        } else {
+            messageDAO = direct;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (queue != null) {
+            queue.shutdown();
+        }
+    }
+
+    @Benchmark
+    public Message createMessage() throws SQLException {
+        return messageDAO.createMessage(new Message(1, "benchmark insert", 1669947792L));
+    }
+}
@@ -0,0 +1,63 @@
+package Bench;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Model.Account;
+import Model.Message;
+import Service.AccountService;
+import Service.MessageService;
+
+/**
+ * Service-layer calls, including everything the services put in front of the DAOs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private AccountService accountService;
+    private MessageService messageService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        BenchDatabase.ensureMessages(rows);
+        accountService = new AccountService();
+        accountService.warmUp();
+        messageService = new MessageService();
+    }
+
+    @Benchmark
+    public Account login() throws SQLException {
+        return accountService.login("testuser1", "password");
+    }
+
+    @Benchmark
+    public boolean accountExists() {
+        return accountService.exists(1);
+    }
+
+    @Benchmark
+    public Message getMessageById() throws SQLException {
+        return messageService.getMessageById(ThreadLocalRandom.current().nextInt(1, rows + 1));
+    }
+}
@@ -0,0 +1,188 @@
+package Controller;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import DAO.MessageHandler;
+import Model.Message;
+import Util.JsonCodec;
+
+/**
+ * Writes messages for GET /messages/export one at a time, as NDJSON or CSV, straight to the response stream.
+ *
+ * Nothing is collected: each message is encoded into a small buffer that is handed to the response stream when
+ * full, and a write to the response blocks while the client is not reading. A slow client therefore slows the
+ * database scan behind it instead of letting rows pile up in memory.
+ */
+enum MessageExport {
+    /**
+     * One JSON object per line, as GET /messages/{message_id} would return it.
+     */
+    NDJSON("application/x-ndjson") {
+        @Override
+        RowWriter open(OutputStream out) throws IOException {
+            JsonGenerator generator = JsonCodec.FACTORY.createGenerator(out);
+            // Each message ends its own line instead of being separated from the next by a space
+            generator.setRootValueSeparator(null);
+            return new RowWriter() {
+                @Override
+                public void handle(Message message) throws IOException {
+                    JsonCodec.writeMessage(generator, message);
+                    generator.writeRaw('\n');
+                }
+
+                @Override
+                public void close() throws IOException {
+                    generator.close();
+                }
+            };
+        }
+    },
+
+    /**
+     * RFC 4180 CSV with a header row. message_text is quoted when it holds a comma, quote or line break.
+     */
+    CSV("text/csv; charset=utf-8") {
+        @Override
+        RowWriter open(OutputStream out) throws IOException {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+            writer.write("message_id,posted_by,message_text,time_posted_epoch\r\n");
+            return new RowWriter() {
+                @Override
+                public void handle(Message message) throws IOException {
+                    writer.write(Integer.toString(message.getMessage_id()));
+                    writer.write(',');
+                    writer.write(Integer.toString(message.getPosted_by()));
+                    writer.write(',');
+                    writeField(writer, message.getMessage_text());
+                    writer.write(',');
+                    writer.write(Long.toString(message.getTime_posted_epoch()));
+                    writer.write("\r\n");
+                }
+
+                @Override
+                public void close() throws IOException {
+                    writer.close();
+                }
+            };
+        }
+    };
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String contentType;
+
+    MessageExport(String contentType) {
+        this.contentType = contentType;
+    }
+
+    String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Starts the export on the response stream, writing any header.
+     */
+    abstract RowWriter open(OutputStream out) throws IOException;
+
+    /**
+     * @param response opens the response stream, committing to a successful status
+     * @return a handler that opens the response only when the first message arrives
+     */
+    Output output(ResponseStream response) {
+        return new Output(this, response);
+    }
+
+    /**
+     * @param format the format query parameter; null means NDJSON
+     * @throws IllegalArgumentException if the format is not ndjson or csv
+     */
+    static MessageExport forFormat(String format) {
+        if (format == null || format.equalsIgnoreCase("ndjson")) {
+            return NDJSON;
+        }
+        if (format.equalsIgnoreCase("csv")) {
+            return CSV;
+        }
+        throw new IllegalArgumentException("format must be ndjson or csv.");
+    }
+
+    private static void writeField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    /**
+     * Encodes messages in one format onto a response stream that is already open.
+     */
+    private interface RowWriter extends MessageHandler, Closeable {
+    }
+
+    /**
+     * Supplies the response stream the first time the export needs it.
+     */
+    @FunctionalInterface
+    interface ResponseStream {
+        OutputStream open() throws IOException;
+    }
+
+    /**
+     * One export in progress. Until the first message arrives nothing has been sent, so a query that fails before
+     * producing a row can still be answered with an error status.
+     */
+    static final class Output implements MessageHandler {
+        private final MessageExport format;
+        private final ResponseStream response;
+        private RowWriter rows;
+
+        private Output(MessageExport format, ResponseStream response) {
+            this.format = format;
+            this.response = response;
+        }
+
+        @Override
+        public void handle(Message message) throws IOException {
+            if (rows == null) {
+                rows = format.open(response.open());
+            }
+            rows.handle(message);
+        }
+
+        /**
+         * @return true once the response has been opened and may have been partly sent
+         */
+        boolean isStarted() {
+            return rows != null;
+        }
+
+        /**
+         * Ends the export, opening the response first if there were no messages.
+         */
+        void finish() throws IOException {
+            if (rows == null) {
+                rows = format.open(response.open());
+            }
+            rows.close();
+        }
+    }
+}
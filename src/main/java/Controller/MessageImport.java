@@ -0,0 +1,280 @@
+package Controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import Model.Message;
+import Service.AccountService;
+import Service.MessageService;
+import Util.JsonCodec;
+import Util.LineReader;
+
+/**
+ * One POST /messages/bulk request: reads an NDJSON body one line at a time and inserts the messages in batches,
+ * each in one transaction, so memory use does not grow with the number of messages.
+ *
+ * Lines are checked as POST /messages would check them, and a rejected line does not stop the import. Results are
+ * written only once the whole body has been read: a client that uploads the body before reading the response would
+ * otherwise deadlock against a server writing results it never reads. Until then they are held as runs, where a
+ * run of consecutive lines that got consecutive message IDs is one entry, so an import of clean data keeps a
+ * handful of entries however long it is. Every rejected line is an entry of its own, so once maxErrors lines have
+ * been rejected the import stops: the rest of the body is read and discarded, and nothing more is held.
+ *
+ * The response has one NDJSON object per non-blank line, in order: {"line":N,"status":200,"message_id":ID} for an
+ * inserted message, {"line":N,"status":400|403|500,"error":"..."} for a rejected one. An import that stopped early
+ * ends with {"line":N,"status":400,"error":"..."} for the first line it did not import.
+ */
+class MessageImport {
+    // Longest line accepted; a valid message is far shorter
+    private static final int MAX_LINE_LENGTH = 4096;
+
+    private final AccountService accountService;
+    private final MessageService messageService;
+    private final int batchSize;
+    private final int maxErrors;
+    // Set when the request has a session: every message must then be posted by that account
+    private final Integer sessionAccountId;
+
+    private final List<ImportLine> pending = new ArrayList<>();
+    // posted_by values already checked in the current batch
+    private final Map<Integer, Boolean> accountChecks = new HashMap<>();
+    private final List<Run> results = new ArrayList<>();
+    // Lines rejected so far, whether or not their results have been recorded yet
+    private int errors;
+    // The first line not imported because too many were rejected, or 0 if every line was imported
+    private int stoppedAtLine;
+
+    /**
+     * @param maxErrors rejected lines after which the rest of the body is not imported
+     * @param sessionAccountId the request's session account, or null if it has none
+     */
+    MessageImport(AccountService accountService, MessageService messageService, int batchSize, int maxErrors,
+                  Integer sessionAccountId) {
+        this.accountService = accountService;
+        this.messageService = messageService;
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+        this.sessionAccountId = sessionAccountId;
+    }
+
+    /**
+     * Imports every line of the body.
+     *
+     * @throws IOException if the body cannot be read; batches already inserted stay inserted
+     */
+    void read(InputStream body) throws IOException {
+        try (LineReader lines = new LineReader(body, MAX_LINE_LENGTH)) {
+            int lineNumber = 0;
+            while (true) {
+                if (errors >= maxErrors) {
+                    if (skipRest(lines)) {
+                        stoppedAtLine = lineNumber + 1;
+                    }
+                    break;
+                }
+                String line;
+                try {
+                    line = lines.readLine();
+                } catch (LineReader.LineTooLongException e) {
+                    add(ImportLine.rejected(++lineNumber, 400, e.getMessage()));
+                    continue;
+                }
+                if (line == null) {
+                    break;
+                }
+                lineNumber++;
+                if (!line.trim().isEmpty()) {
+                    add(check(lineNumber, line));
+                }
+            }
+        }
+        insertPending();
+    }
+
+    /**
+     * Reads the body to its end without keeping anything, so a client still uploading it gets to read the results.
+     *
+     * @return true if there was anything left to skip
+     */
+    private static boolean skipRest(LineReader lines) throws IOException {
+        boolean skipped = false;
+        while (true) {
+            try {
+                if (lines.readLine() == null) {
+                    return skipped;
+                }
+            } catch (LineReader.LineTooLongException e) {
+                // Skipped like any other line
+            }
+            skipped = true;
+        }
+    }
+
+    /**
+     * Writes the result of every line read.
+     */
+    void writeResults(OutputStream out) throws IOException {
+        try (JsonGenerator generator = JsonCodec.FACTORY.createGenerator(out)) {
+            // Each result ends its own line instead of being separated from the next by a space
+            generator.setRootValueSeparator(null);
+            for (Run run : results) {
+                for (int i = 0; i < run.count; i++) {
+                    generator.writeStartObject();
+                    generator.writeNumberField("line", run.firstLine + i);
+                    generator.writeNumberField("status", run.status);
+                    if (run.error == null) {
+                        generator.writeNumberField("message_id", run.firstMessageId + i);
+                    } else {
+                        generator.writeStringField("error", run.error);
+                    }
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                }
+            }
+            if (stoppedAtLine > 0) {
+                generator.writeStartObject();
+                generator.writeNumberField("line", stoppedAtLine);
+                generator.writeNumberField("status", 400);
+                generator.writeStringField("error", "Import stopped after " + errors
+                        + " rejected lines; this line and the rest were not imported.");
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    private void add(ImportLine line) {
+        if (line.message == null) {
+            errors++;
+        }
+        pending.add(line);
+        if (pending.size() >= batchSize) {
+            insertPending();
+        }
+    }
+
+    private ImportLine check(int lineNumber, String line) {
+        Message message;
+        try {
+            message = JsonCodec.readMessage(line);
+        } catch (IOException e) {
+            return ImportLine.rejected(lineNumber, 400, "Invalid JSON");
+        }
+        if (message.getMessage_text() == null || message.getMessage_text().trim().isEmpty()) {
+            return ImportLine.rejected(lineNumber, 400, "Message text cannot be empty.");
+        }
+        if (message.getMessage_text().length() > 255) {
+            return ImportLine.rejected(lineNumber, 400, "Message text cannot exceed 255 characters.");
+        }
+        if (sessionAccountId != null) {
+            // A live session proves the account exists; it may only post as itself
+            if (sessionAccountId != message.getPosted_by()) {
+                return ImportLine.rejected(lineNumber, 403, "posted_by must be the session's account.");
+            }
+        } else if (!accountChecks.computeIfAbsent(message.getPosted_by(), accountService::exists)) {
+            return ImportLine.rejected(lineNumber, 400, "posted_by is not an existing account.");
+        }
+        return new ImportLine(lineNumber, message);
+    }
+
+    /**
+     * Inserts the accepted lines of the current batch together and records every line's result. If the batch
+     * insert fails, its messages are retried one at a time so one bad row does not reject its neighbours.
+     */
+    private void insertPending() {
+        List<Message> messages = new ArrayList<>(pending.size());
+        for (ImportLine line : pending) {
+            if (line.message != null) {
+                messages.add(line.message);
+            }
+        }
+        try {
+            messageService.postMessages(messages);
+        } catch (Exception batchFailure) {
+            for (ImportLine line : pending) {
+                if (line.message == null) {
+                    continue;
+                }
+                try {
+                    messageService.postMessage(line.message);
+                } catch (IllegalArgumentException e) {
+                    line.reject(400, e.getMessage());
+                    errors++;
+                } catch (Exception e) {
+                    line.reject(500, "Internal server error: " + e.getMessage());
+                    errors++;
+                }
+            }
+        }
+        for (ImportLine line : pending) {
+            record(line);
+        }
+        pending.clear();
+        accountChecks.clear();
+    }
+
+    private void record(ImportLine line) {
+        Run last = results.isEmpty() ? null : results.get(results.size() - 1);
+        if (line.message != null && last != null && last.error == null
+                && last.firstLine + last.count == line.lineNumber
+                && last.firstMessageId + last.count == line.message.getMessage_id()) {
+            last.count++;
+            return;
+        }
+        results.add(line.message != null
+                ? new Run(line.lineNumber, 200, line.message.getMessage_id(), null)
+                : new Run(line.lineNumber, line.status, 0, line.error));
+    }
+
+    /**
+     * One non-blank line of the current batch: the message to insert, or why the line was rejected.
+     */
+    private static final class ImportLine {
+        private final int lineNumber;
+        private Message message;
+        private int status = 200;
+        private String error;
+
+        private ImportLine(int lineNumber, Message message) {
+            this.lineNumber = lineNumber;
+            this.message = message;
+        }
+
+        private static ImportLine rejected(int lineNumber, int status, String error) {
+            ImportLine line = new ImportLine(lineNumber, null);
+            line.reject(status, error);
+            return line;
+        }
+
+        private void reject(int status, String error) {
+            this.message = null;
+            this.status = status;
+            this.error = error;
+        }
+    }
+
+    /**
+     * The result of count consecutive lines: inserted with consecutive message IDs, or one rejected line.
+     */
+    private static final class Run {
+        private final int firstLine;
+        private final int status;
+        private final int firstMessageId;
+        private final String error;
+        private int count = 1;
+
+        private Run(int firstLine, int status, int firstMessageId, String error) {
+            this.firstLine = firstLine;
+            this.status = status;
+            this.firstMessageId = firstMessageId;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package Controller;
+
+import io.javalin.json.JavalinJackson;
+import io.javalin.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import Model.Account;
+import Model.Message;
+import Model.MessagePage;
+import Util.JsonCodec;
+
+/**
+ * Javalin JSON mapper that sends the models through {@link JsonCodec} and anything else through Javalin's default
+ * Jackson mapper, so context.json and context.bodyAsClass avoid reflection for every type the API actually uses.
+ */
+class ModelJsonMapper implements JsonMapper {
+    private final JsonMapper fallback = new JavalinJackson();
+
+    @Override
+    public String toJsonString(Object obj, Type type) {
+        if (!isModel(obj)) {
+            return fallback.toJsonString(obj, type);
+        }
+        StringWriter out = new StringWriter(128);
+        try (JsonGenerator generator = JsonCodec.FACTORY.createGenerator(out)) {
+            write(generator, obj);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T fromJsonString(String json, Type targetType) {
+        if (targetType != Account.class && targetType != Message.class) {
+            return fallback.fromJsonString(json, targetType);
+        }
+        try (JsonParser parser = JsonCodec.FACTORY.createParser(json)) {
+            return (T) read(parser, targetType);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T fromJsonStream(InputStream json, Type targetType) {
+        if (targetType != Account.class && targetType != Message.class) {
+            return fallback.fromJsonStream(json, targetType);
+        }
+        try (JsonParser parser = JsonCodec.FACTORY.createParser(json)) {
+            return (T) read(parser, targetType);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Object read(JsonParser parser, Type targetType) throws IOException {
+        return targetType == Account.class ? JsonCodec.readAccount(parser) : JsonCodec.readMessage(parser);
+    }
+
+    private static boolean isModel(Object obj) {
+        if (obj instanceof Account || obj instanceof Message || obj instanceof MessagePage) {
+            return true;
+        }
+        if (obj instanceof List) {
+            for (Object element : (List<?>) obj) {
+                if (!(element instanceof Message)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void write(JsonGenerator generator, Object obj) throws IOException {
+        if (obj instanceof Account) {
+            JsonCodec.writeAccount(generator, (Account) obj);
+        } else if (obj instanceof Message) {
+            JsonCodec.writeMessage(generator, (Message) obj);
+        } else if (obj instanceof MessagePage) {
+            JsonCodec.writeMessagePage(generator, (MessagePage) obj);
+        } else {
+            JsonCodec.writeMessages(generator, (List<Message>) obj);
+        }
+    }
+}
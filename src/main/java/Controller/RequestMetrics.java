@@ -0,0 +1,174 @@
+package Controller;
+
+import io.javalin.http.Context;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import Util.LatencyHistogram;
+import Util.Metrics;
+
+/**
+ * Per-route request counters, status-code counts, latency histograms and in-flight gauges.
+ *
+ * Every route gets its own {@link Route} when it is registered. A request is tied to its Route by the handler
+ * wrapper, and the after-handler records into it using only atomics, so there is no map lookup, lock or allocation
+ * on the request path apart from one {@link Timing} per request, which Javalin keeps as a request attribute.
+ */
+class RequestMetrics {
+    private static final String TIMING_ATTRIBUTE = "metrics.timing";
+    // Quantiles reported for every latency summary
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+    // Requests that matched no route, e.g. 404s
+    private final Route unmatched = new Route("ANY", "unmatched");
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * @return the metrics for the given route, created on first use
+     */
+    Route route(String method, String path) {
+        return routes.computeIfAbsent(method + " " + path, key -> new Route(method, path));
+    }
+
+    /**
+     * Registered as a before-handler for every path.
+     */
+    void before(Context context) {
+        inFlight.incrementAndGet();
+        context.attribute(TIMING_ATTRIBUTE, new Timing(System.nanoTime()));
+    }
+
+    /**
+     * Called by the route's handler wrapper before it runs, so the after-handler knows where to record.
+     */
+    void enter(Context context, Route route) {
+        Timing timing = context.attribute(TIMING_ATTRIBUTE);
+        if (timing == null) {
+            return;
+        }
+        route.inFlight.incrementAndGet();
+        timing.route = route;
+    }
+
+    /**
+     * Registered as an after-handler for every path.
+     */
+    void after(Context context) {
+        Timing timing = context.attribute(TIMING_ATTRIBUTE);
+        if (timing == null) {
+            return;
+        }
+        inFlight.decrementAndGet();
+        Route route = timing.route;
+        if (route == null) {
+            route = unmatched;
+        } else {
+            route.inFlight.decrementAndGet();
+        }
+        route.record(context.status().getCode(), System.nanoTime() - timing.startNanos);
+    }
+
+    /**
+     * Appends all request metrics in Prometheus text format.
+     */
+    void write(StringBuilder out) {
+        out.append("# HELP http_requests_total Completed HTTP requests.\n");
+        out.append("# TYPE http_requests_total counter\n");
+        for (Route route : allRoutes()) {
+            for (int status = 0; status < Route.STATUS_CODES; status++) {
+                long count = route.statusCounts.get(status);
+                if (count > 0) {
+                    out.append("http_requests_total{").append(route.labels)
+                            .append(",status=\"").append(status).append("\"} ").append(count).append('\n');
+                }
+            }
+        }
+
+        out.append("# HELP http_request_duration_seconds Time from the before-handler to the after-handler.\n");
+        out.append("# TYPE http_request_duration_seconds summary\n");
+        for (Route route : allRoutes()) {
+            writeSummary(out, "http_request_duration_seconds", route.labels, route.latency);
+        }
+
+        out.append("# HELP http_requests_in_flight Requests currently being handled.\n");
+        out.append("# TYPE http_requests_in_flight gauge\n");
+        out.append("http_requests_in_flight ").append(inFlight.get()).append('\n');
+        for (Route route : routes.values()) {
+            out.append("http_requests_in_flight{").append(route.labels).append("} ")
+                    .append(route.inFlight.get()).append('\n');
+        }
+
+        out.append("# HELP db_statement_duration_seconds Time spent running each SQL statement.\n");
+        out.append("# TYPE db_statement_duration_seconds summary\n");
+        for (Map.Entry<String, LatencyHistogram> timer : Metrics.sqlTimers().entrySet()) {
+            writeSummary(out, "db_statement_duration_seconds", "statement=\"" + timer.getKey() + "\"",
+                    timer.getValue());
+        }
+    }
+
+    /**
+     * Appends a histogram of nanosecond values as a Prometheus summary in seconds.
+     */
+    static void writeSummary(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        for (double quantile : QUANTILES) {
+            out.append(name).append('{').append(labels).append(",quantile=\"").append(quantile).append("\"} ")
+                    .append(seconds(histogram.getPercentile(quantile * 100))).append('\n');
+        }
+        out.append(name).append("_sum{").append(labels).append("} ")
+                .append(seconds(histogram.getSum())).append('\n');
+        out.append(name).append("_count{").append(labels).append("} ")
+                .append(histogram.getCount()).append('\n');
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+
+    private List<Route> allRoutes() {
+        List<Route> all = new ArrayList<>(routes.values());
+        all.add(unmatched);
+        return all;
+    }
+
+    /**
+     * Everything recorded for one method and path.
+     */
+    static final class Route {
+        private static final int STATUS_CODES = 600;
+
+        private final String labels;
+        private final AtomicLongArray statusCounts = new AtomicLongArray(STATUS_CODES);
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private Route(String method, String path) {
+            this.labels = "method=\"" + method + "\",route=\"" + path + "\"";
+        }
+
+        private void record(int status, long nanos) {
+            if (status >= 0 && status < STATUS_CODES) {
+                statusCounts.incrementAndGet(status);
+            }
+            latency.record(nanos);
+        }
+    }
+
+    /**
+     * What the before-handler and the route's wrapper leave for the after-handler: the start time as a primitive,
+     * so it is never boxed, and the route once one has matched.
+     */
+    private static final class Timing {
+        private final long startNanos;
+        private Route route;
+
+        private Timing(long startNanos) {
+            this.startNanos = startNanos;
+        }
+    }
+}
@@ -2,22 +2,66 @@ package Controller;
 
 import io.javalin.Javalin;
 import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.http.HandlerType;
+
+import org.eclipse.jetty.server.Request;
 
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonGenerator;
 
+import DAO.MessageHandler;
+import DAO.StorageEngine;
+import DAO.TimelineQuery;
 import Model.Account;
 import Model.Message;
+import Model.MessagePage;
 import Service.AccountService;
 import Service.MessageService;
+import Util.AppConfig;
+import Util.BlockingWorkExecutor;
+import Util.CacheStats;
+import Util.ConnectionUtil;
+import Util.JsonCodec;
+import Util.LoadStats;
+import Util.PoolStats;
+import Util.SessionStore;
 
 public class SocialMediaController {
+    // Page size used by GET /messages when a cursor is given without a limit
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    // Results returned by GET /messages/search when no limit is given
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    // Response header carrying the session token issued by /login
+    private static final String SESSION_HEADER = "X-Session-Token";
+    private static final String BEARER = "Bearer ";
+    // Results of authenticate(): no token was sent, or a bad token was sent and 401 has been answered
+    private static final int ANONYMOUS = 0;
+    private static final int UNAUTHORIZED = -1;
+
+    // When true, list endpoints stream rows straight from the ResultSet instead of building a List first
+    private final boolean streamLists = AppConfig.getBoolean("api.streamLists", true);
+    // When true, handlers run on a dedicated executor and Jetty's request threads are released while the DB works
+    private final boolean offloadHandlers = AppConfig.getBoolean("api.async.enabled", false);
+    private BlockingWorkExecutor handlerExecutor;
+    // When true, POST /messages, PATCH and DELETE must carry a session token
+    private final boolean authRequired = AppConfig.getBoolean("auth.required", false);
+    // Lines of a bulk import inserted per transaction, and answered together
+    private final int importBatchSize = AppConfig.getInt("api.import.batchSize", 1000);
+    // Rejected lines after which a bulk import stops, bounding the results it holds until the body is read
+    private final int importMaxErrors = AppConfig.getInt("api.import.maxErrors", 1000);
+    // Per-route counters and latency histograms, exported at GET /metrics
+    private final RequestMetrics requestMetrics = new RequestMetrics();
+
     private AccountService accountService;
     private MessageService messageService;
+    // Set when this controller built the storage engine itself, so it closes it when the server stops
+    private StorageEngine storage;
 
     // Constructors
     public SocialMediaController(AccountService accountService, MessageService messageService) {
@@ -26,34 +70,190 @@ public class SocialMediaController {
     }
     
     public SocialMediaController() {
-        // Assumes both AccountService and MessageService have parameterless constructors
-        this.accountService = new AccountService();
-        this.messageService = new MessageService();
+        // Both services share one storage engine, selected with -Dstorage.engine (h2 by default)
+        this(StorageEngine.fromConfig());
+    }
+
+    public SocialMediaController(StorageEngine storage) {
+        this(new AccountService(storage.getAccountStore()), new MessageService(storage.getMessageStore()));
+        this.storage = storage;
     }
 
     public Javalin startAPI() {
-        Javalin app = Javalin.create();
+        // Account, Message and MessagePage bodies go through the reflection-free codecs in JsonCodec
+        Javalin app = Javalin.create(config -> config.jsonMapper(new ModelJsonMapper()));
+
+        if (offloadHandlers) {
+            handlerExecutor = new BlockingWorkExecutor("api-worker",
+                    AppConfig.getInt("api.async.threads", 16),
+                    AppConfig.getInt("api.async.maxQueued", 256),
+                    AppConfig.getBoolean("api.async.virtualThreads", true));
+            BlockingWorkExecutor executor = handlerExecutor;
+            app.events(event -> event.serverStopped(executor::shutdown));
+        }
+
+        if (storage != null) {
+            StorageEngine engine = storage;
+            app.events(event -> event.serverStopped(engine::close));
+        }
+
+        app.before(requestMetrics::before);
+        app.after(requestMetrics::after);
 
         // Register new user
-        app.post("/register", this::registerUser);
+        route(app, HandlerType.POST, "/register", this::registerUser);
         // User login
-        app.post("/login", this::loginUser);
+        route(app, HandlerType.POST, "/login", this::loginUser);
         // Create new message
-        app.post("/messages", this::postMessage);
-        // Get all messages
-        app.get("/messages", this::getAllMessages);
+        route(app, HandlerType.POST, "/messages", this::postMessage);
+        // Create many messages from an NDJSON body, one message per line; answers one NDJSON result per line once
+        // the whole body has been read
+        route(app, HandlerType.POST, "/messages/bulk", this::importMessages);
+        // Get all messages, or one page of them with ?limit=&cursor=
+        route(app, HandlerType.GET, "/messages", this::getAllMessages);
+        // Full-text search, newest first: ?q=word "a phrase" pre*&limit=; registered before {message_id} so
+        // "search" is not taken for an ID
+        route(app, HandlerType.GET, "/messages/search", this::searchMessages);
+        // Every message in message_id order as ?format=ndjson|csv, optionally only those posted within
+        // ?after=&before=; streamed at the pace the client reads
+        route(app, HandlerType.GET, "/messages/export", this::exportMessages);
         // Get a message by ID
-        app.get("/messages/{message_id}", this::getMessageById);
+        route(app, HandlerType.GET, "/messages/{message_id}", this::getMessageById);
         // Delete a message
-        app.delete("/messages/{message_id}", this::deleteMessage);
+        route(app, HandlerType.DELETE, "/messages/{message_id}", this::deleteMessage);
         // Update a message
-        app.patch("/messages/{message_id}", this::updateMessage);
-        // Get messages by user
-        app.get("/accounts/{account_id}/messages", this::getMessagesByUser);
+        route(app, HandlerType.PATCH, "/messages/{message_id}", this::updateMessage);
+        // Get messages by user, newest first, optionally windowed with ?limit=&before=&after=
+        route(app, HandlerType.GET, "/accounts/{account_id}/messages", this::getMessagesByUser);
+        // Prometheus metrics; never offloaded, so it still answers when the executor is saturated
+        RequestMetrics.Route metricsRoute = requestMetrics.route(HandlerType.GET.name(), "/metrics");
+        app.get("/metrics", context -> {
+            requestMetrics.enter(context, metricsRoute);
+            getMetrics(context);
+        });
+
+        // Load account IDs now so the first POST /messages does not pay for it
+        accountService.warmUp();
+        // Index every existing message so search sees rows written before this process started
+        try {
+            messageService.rebuildSearchIndex();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not build the message search index.", e);
+        }
 
         return app;
     }
 
+    /**
+     * Registers a route whose requests are counted and timed under its own method and path.
+     */
+    private void route(Javalin app, HandlerType type, String path, Handler blocking) {
+        RequestMetrics.Route metrics = requestMetrics.route(type.name(), path);
+        Handler handler = handler(blocking);
+        app.addHandler(type, path, context -> {
+            requestMetrics.enter(context, metrics);
+            handler.handle(context);
+        });
+    }
+
+    /**
+     * Returns the handler unchanged in the default mode. With api.async.enabled it instead returns a handler that
+     * runs the original on handlerExecutor and completes the request through Javalin's context.future, answering
+     * 503 straight away when too much work is already pending.
+     */
+    private Handler handler(Handler blocking) {
+        if (!offloadHandlers) {
+            return blocking;
+        }
+        return context -> context.future(() -> {
+            try {
+                return handlerExecutor.submit(() -> blocking.handle(context));
+            } catch (RejectedExecutionException e) {
+                context.status(503).header("Retry-After", "1").result("");
+                return CompletableFuture.completedFuture(null);
+            }
+        });
+    }
+
+    private void getMetrics(Context context) {
+        StringBuilder out = new StringBuilder(8192);
+        requestMetrics.write(out);
+
+        PoolStats pool = ConnectionUtil.getPoolStats();
+        out.append("# TYPE db_pool_connections gauge\n");
+        out.append("db_pool_connections{state=\"active\"} ").append(pool.getActive()).append('\n');
+        out.append("db_pool_connections{state=\"idle\"} ").append(pool.getIdle()).append('\n');
+        out.append("db_pool_connections{state=\"max\"} ").append(pool.getMaxSize()).append('\n');
+        out.append("# TYPE db_pool_waiters gauge\n");
+        out.append("db_pool_waiters ").append(pool.getWaiters()).append('\n');
+        out.append("# TYPE db_pool_timeouts_total counter\n");
+        out.append("db_pool_timeouts_total ").append(pool.getTimeouts()).append('\n');
+        out.append("# TYPE db_pool_acquire_seconds summary\n");
+        RequestMetrics.writeSummary(out, "db_pool_acquire_seconds", "pool=\"default\"", pool.getAcquireTimes());
+
+        String[] cacheNames = {"messages", "timelines"};
+        CacheStats[] caches = {messageService.getMessageCacheStats(), messageService.getTimelineCacheStats()};
+        out.append("# TYPE cache_requests_total counter\n");
+        for (int i = 0; i < caches.length; i++) {
+            if (caches[i] != null) {
+                out.append("cache_requests_total{cache=\"").append(cacheNames[i]).append("\",result=\"hit\"} ")
+                        .append(caches[i].getHits()).append('\n');
+                out.append("cache_requests_total{cache=\"").append(cacheNames[i]).append("\",result=\"miss\"} ")
+                        .append(caches[i].getMisses()).append('\n');
+            }
+        }
+        out.append("# TYPE cache_evictions_total counter\n");
+        for (int i = 0; i < caches.length; i++) {
+            if (caches[i] != null) {
+                out.append("cache_evictions_total{cache=\"").append(cacheNames[i]).append("\"} ")
+                        .append(caches[i].getEvictions()).append('\n');
+            }
+        }
+        out.append("# TYPE cache_entries gauge\n");
+        for (int i = 0; i < caches.length; i++) {
+            if (caches[i] != null) {
+                out.append("cache_entries{cache=\"").append(cacheNames[i]).append("\"} ")
+                        .append(caches[i].getSize()).append('\n');
+            }
+        }
+        LoadStats allMessages = messageService.getAllMessagesCacheStats();
+        if (allMessages != null) {
+            out.append("# TYPE response_cache_requests_total counter\n");
+            out.append("response_cache_requests_total{route=\"/messages\",result=\"hit\"} ")
+                    .append(allMessages.getHits()).append('\n');
+            out.append("response_cache_requests_total{route=\"/messages\",result=\"rebuild\"} ")
+                    .append(allMessages.getLoads()).append('\n');
+            out.append("response_cache_requests_total{route=\"/messages\",result=\"shared\"} ")
+                    .append(allMessages.getShared()).append('\n');
+        }
+        String[] loadNames = {"message_by_id", "account_by_username", "account_by_id"};
+        LoadStats[] loads = {messageService.getMessageLoadStats(), accountService.getLoginLoadStats(),
+                accountService.getAccountByIdLoadStats()};
+        out.append("# TYPE coalesced_reads_total counter\n");
+        for (int i = 0; i < loads.length; i++) {
+            out.append("coalesced_reads_total{read=\"").append(loadNames[i]).append("\",result=\"load\"} ")
+                    .append(loads[i].getLoads()).append('\n');
+            out.append("coalesced_reads_total{read=\"").append(loadNames[i]).append("\",result=\"shared\"} ")
+                    .append(loads[i].getShared()).append('\n');
+        }
+        out.append("# TYPE cache_bytes gauge\n");
+        out.append("cache_bytes{cache=\"timelines\"} ").append(messageService.getTimelineCacheBytes()).append('\n');
+
+        out.append("# TYPE search_index_messages gauge\n");
+        out.append("search_index_messages ").append(messageService.getSearchIndexSize()).append('\n');
+        out.append("# TYPE auth_sessions gauge\n");
+        out.append("auth_sessions ").append(accountService.getSessionCount()).append('\n');
+
+        if (handlerExecutor != null) {
+            out.append("# TYPE api_executor_pending gauge\n");
+            out.append("api_executor_pending ").append(handlerExecutor.getPending()).append('\n');
+            out.append("# TYPE api_executor_rejected_total counter\n");
+            out.append("api_executor_rejected_total ").append(handlerExecutor.getRejected()).append('\n');
+        }
+
+        context.contentType("text/plain; version=0.0.4; charset=utf-8").result(out.toString());
+    }
+
     public void registerUser(Context context) {
         try {
             Account account = context.bodyAsClass(Account.class);
@@ -79,6 +279,7 @@ public class SocialMediaController {
             Account account = context.bodyAsClass(Account.class);
             Account loggedAccount = accountService.login(account.getUsername(), account.getPassword());
             if (loggedAccount != null) {
+                context.header(SESSION_HEADER, accountService.startSession(loggedAccount));
                 context.status(200).json(loggedAccount);
             } else {
                 // Ensure the response body is empty on failed login
@@ -93,6 +294,10 @@ public class SocialMediaController {
 
     private void postMessage(Context context) {
         try {
+            int sessionAccountId = authenticate(context);
+            if (sessionAccountId == UNAUTHORIZED) {
+                return;
+            }
             Message message = context.bodyAsClass(Message.class);
             // Validate the message content
             if (message.getMessage_text() == null || message.getMessage_text().isEmpty()) {
@@ -103,8 +308,14 @@ public class SocialMediaController {
                 context.status(400).result(""); // Empty response for message too long
                 return;
             }
-            // Check if the user exists
-            if (!accountService.exists(message.getPosted_by())) {
+            if (sessionAccountId != ANONYMOUS) {
+                // A live session proves the account exists, so there is no lookup; it may only post as itself
+                if (sessionAccountId != message.getPosted_by()) {
+                    context.status(403).result("");
+                    return;
+                }
+            } else if (!accountService.exists(message.getPosted_by())) {
+                // Check if the user exists
                 context.status(400).result(""); // Modify here to return an empty response body when user does not exist
                 return;
             }
@@ -123,18 +334,117 @@ public class SocialMediaController {
     
     
 
+    private void importMessages(Context context) {
+        int sessionAccountId = authenticate(context);
+        if (sessionAccountId == UNAUTHORIZED) {
+            return;
+        }
+        MessageImport messageImport = new MessageImport(accountService, messageService, importBatchSize,
+                importMaxErrors, sessionAccountId == ANONYMOUS ? null : sessionAccountId);
+        try {
+            messageImport.read(context.bodyInputStream());
+        } catch (IOException e) {
+            // Batches inserted before the body broke off stay inserted, and their results are still reported
+            context.status(400);
+        }
+        try {
+            context.contentType("application/x-ndjson");
+            messageImport.writeResults(context.outputStream());
+        } catch (IOException e) {
+            // The client went away before reading the results
+            e.printStackTrace();
+        }
+    }
+
     private void getAllMessages(Context context) {
         try {
+            String limitParam = context.queryParam("limit");
+            String cursor = context.queryParam("cursor");
+            if (limitParam != null || cursor != null) {
+                // Paginated mode: the response is a page object with a next_cursor instead of a bare list
+                int limit = limitParam == null ? DEFAULT_PAGE_SIZE : Integer.parseInt(limitParam);
+                MessagePage page = messageService.getMessagesPage(cursor, limit);
+                if (page.getNext() != null) {
+                    context.header("Link", "<" + page.getNext() + ">; rel=\"next\"");
+                }
+                context.json(page);
+                return;
+            }
+            if (messageService.hasAllMessagesCache()) {
+                // Built at most once per write and shared by every reader until the next one
+                byte[] json = messageService.getAllMessagesJson();
+                if (json != null) {
+                    context.status(200).contentType("application/json").result(json);
+                    return;
+                }
+            }
+            if (streamLists) {
+                streamMessages(context, messageService::streamAllMessages);
+                return;
+            }
             List<Message> messages = messageService.getAllMessages();
             context.json(messages);
+        } catch (IllegalArgumentException e) {
+            // Also covers NumberFormatException from a non-numeric limit
+            context.status(400).result("Invalid pagination parameters");
         } catch (Exception e) {
             context.status(400).result("Failed to retrieve messages: " + e.getMessage());
         }
     }
 
+    private void searchMessages(Context context) {
+        try {
+            Integer limit = optionalInt(context, "limit");
+            List<Message> messages = messageService.searchMessages(context.queryParam("q"),
+                    limit == null ? DEFAULT_SEARCH_LIMIT : limit);
+            context.json(messages);
+        } catch (IllegalArgumentException e) {
+            // Also covers NumberFormatException from a non-numeric limit
+            context.status(400).result("Invalid search: " + e.getMessage());
+        } catch (Exception e) {
+            context.status(500).result("Internal server error: " + e.getMessage());
+        }
+    }
+
+    private void exportMessages(Context context) {
+        MessageExport export;
+        Long after;
+        Long before;
+        try {
+            export = MessageExport.forFormat(context.queryParam("format"));
+            after = optionalLong(context, "after");
+            before = optionalLong(context, "before");
+            if (after != null && before != null && after >= before) {
+                throw new IllegalArgumentException("after must be earlier than before.");
+            }
+        } catch (IllegalArgumentException e) {
+            // Also covers NumberFormatException from a non-numeric bound
+            context.status(400).result("Invalid export: " + e.getMessage());
+            return;
+        }
+        MessageExport.Output output = export.output(() -> {
+            context.status(200).contentType(export.getContentType());
+            return context.outputStream();
+        });
+        try {
+            messageService.streamMessagesPostedBetween(after, before, output);
+            output.finish();
+        } catch (Exception e) {
+            if (output.isStarted()) {
+                // Part of the export may already be on the wire, so cut it off rather than let it look complete
+                abortResponse(context, e);
+            } else {
+                context.status(500).result("Internal server error: " + e.getMessage());
+            }
+        }
+    }
+
     public void getMessageById(Context context) {
         try {
             int messageId = Integer.parseInt(context.pathParam("message_id"));
+            if (notModified(context, messageService.getMessageEtag(messageId))) {
+                return;
+            }
             Message message = messageService.getMessageById(messageId);
             if (message != null) {
                 context.status(200).json(message);
@@ -144,6 +454,7 @@ public class SocialMediaController {
         } catch (NumberFormatException e) {
             context.status(400).result("Invalid message ID format");
         } catch (Exception e) {
+            dropEtag(context);
             context.status(500).result("Internal server error: " + e.getMessage());
         }
     }
@@ -152,14 +463,13 @@ public class SocialMediaController {
     private void deleteMessage(Context context) {
         try {
             int messageId = Integer.parseInt(context.pathParam("message_id"));
-            Message messageToDelete = messageService.getMessageById(messageId);
-            if (messageToDelete != null) {
-                boolean isDeleted = messageService.deleteMessage(messageId);
-                if (isDeleted) {
-                    context.status(200).json(messageToDelete); // Return the JSON representation of the deleted message
-                } else {
-                    context.status(500).result("Failed to delete message");
-                }
+            if (!authorizeMessageOwner(context, messageId)) {
+                return;
+            }
+            // Deletes and returns the row in one statement, so there is no window between lookup and delete
+            Message deletedMessage = messageService.deleteMessage(messageId);
+            if (deletedMessage != null) {
+                context.status(200).json(deletedMessage); // Return the JSON representation of the deleted message
             } else {
                 context.status(200).result(""); // Ensure to return an empty response body for non-existent message IDs
             }
@@ -173,18 +483,16 @@ public class SocialMediaController {
 
     public void updateMessage(Context context) {
         int messageId = Integer.parseInt(context.pathParam("message_id"));
-        String requestBody = context.body();
-        ObjectMapper objectMapper = new ObjectMapper();
-        JsonNode rootNode;
+        String messageText;
     
         try {
-            rootNode = objectMapper.readTree(requestBody);
+            // Only message_text is needed, so read it straight off the body without building a JSON tree
+            messageText = JsonCodec.readMessageText(context.bodyInputStream());
         } catch (IOException e) {
             context.status(400).result("Invalid JSON format");
             return;
         }
     
-        String messageText = rootNode.path("message_text").asText();
         if (messageText == null || messageText.trim().isEmpty()) {
             context.status(400).result("");
             return;
@@ -195,22 +503,20 @@ public class SocialMediaController {
         }
     
         try {
+            if (!authorizeMessageOwner(context, messageId)) {
+                return;
+            }
             Message updatedMessage = messageService.updateMessageText(messageId, messageText);
             if (updatedMessage != null) {
                 context.status(200).json(updatedMessage);
             } else {
-                // Handle null returned when message is not found
-                context.status(400).result(""); // Change this to match the expected status code and body
+                // Null means no message has this ID
+                context.status(400).result("");
             }
         } catch (IllegalArgumentException e) {
             context.status(400).result(e.getMessage());
         } catch (SQLException e) {
-            // Specific handling if the error message from the SQL exception indicates the ID was not found
-            if (e.getMessage().contains("not found")) {
-                context.status(400).result("");
-            } else {
-                context.status(500).result("Database error: " + e.getMessage());
-            }
+            context.status(500).result("Database error: " + e.getMessage());
         } catch (Exception e) {
             context.status(500).result("Internal server error: " + e.getMessage());
         }
@@ -223,17 +529,202 @@ public class SocialMediaController {
     private void getMessagesByUser(Context context) {
         try {
             int userId = Integer.parseInt(context.pathParam("account_id"));
-            List<Message> messages = messageService.getMessagesByUserId(userId);
+            // Optional window: ?limit=50&before=<epoch>&after=<epoch>, newest first
+            TimelineQuery query = new TimelineQuery(userId, optionalLong(context, "before"),
+                    optionalLong(context, "after"), optionalInt(context, "limit"));
+            // Rejected here, before any part of a streamed response has been written
+            MessageService.validateTimeline(query);
+            if (notModified(context, messageService.getTimelineEtag(userId))) {
+                return;
+            }
+            if (query.isUnbounded() && messageService.hasTimelineCache()) {
+                // Ready-made JSON, usually straight from memory
+                context.status(200).contentType("application/json").result(messageService.getTimelineJson(userId));
+                return;
+            }
+            if (streamLists) {
+                streamMessages(context, handler -> messageService.streamMessagesByUserId(query, handler));
+                return;
+            }
+            List<Message> messages = messageService.getMessagesByUserId(query);
             if (messages != null) {
                 context.json(messages);
             } else {
+                dropEtag(context);
                 context.status(404).result("User not found or no messages for user");
             }
         } catch (Exception e) {
+            dropEtag(context);
             context.status(400).result("Failed to retrieve messages: " + e.getMessage());
         }
     }
 
+    /**
+     * Resolves the request's session from an "Authorization: Bearer <token>" header, in memory only.
+     *
+     * @return the session's account_id; ANONYMOUS if no header was sent and auth.required is off; or UNAUTHORIZED
+     * once a 401 has been answered for a missing, malformed, unknown or expired token
+     */
+    private int authenticate(Context context) {
+        String header = context.header("Authorization");
+        if (header == null) {
+            if (authRequired) {
+                context.status(401).result("");
+                return UNAUTHORIZED;
+            }
+            return ANONYMOUS;
+        }
+        int accountId = SessionStore.NO_SESSION;
+        if (header.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            accountId = accountService.getSessionAccountId(header.substring(BEARER.length()).trim());
+        }
+        if (accountId == SessionStore.NO_SESSION) {
+            context.status(401).result("");
+            return UNAUTHORIZED;
+        }
+        return accountId;
+    }
+
+    /**
+     * Checks that a session, if any, belongs to the author of the message about to be changed. Answers 401 or 403
+     * and returns false when it does not. A message that does not exist is left to the handler to report.
+     */
+    private boolean authorizeMessageOwner(Context context, int messageId) throws SQLException {
+        int sessionAccountId = authenticate(context);
+        if (sessionAccountId == UNAUTHORIZED) {
+            return false;
+        }
+        if (sessionAccountId != ANONYMOUS) {
+            Message existing = messageService.getMessageById(messageId);
+            if (existing != null && existing.getPosted_by() != sessionAccountId) {
+                context.status(403).result("");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sets the response's ETag and, when the request's If-None-Match already names it, answers 304 with no body.
+     * Handlers call it only once the request is known to be valid, and call dropEtag if they then fail.
+     *
+     * @return true if 304 has been answered and the handler should stop
+     */
+    private static boolean notModified(Context context, String etag) {
+        context.header("ETag", etag);
+        String ifNoneMatch = context.header("If-None-Match");
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            // GET compares weakly, so a W/ prefix added by an intermediary still matches
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                context.status(304).result("");
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes the ETag set by notModified, which describes data an error response does not carry.
+     */
+    private static void dropEtag(Context context) {
+        context.res().setHeader("ETag", null);
+    }
+
+    // Both helpers throw NumberFormatException for malformed values, which handlers report as a 400
+    private static Long optionalLong(Context context, String name) {
+        String value = context.queryParam(name);
+        return value == null ? null : Long.valueOf(value);
+    }
+
+    private static Integer optionalInt(Context context, String name) {
+        String value = context.queryParam(name);
+        return value == null ? null : Integer.valueOf(value);
+    }
+
+    /**
+     * Writes messages to the response as a JSON array while they are read from the database, so memory use and
+     * time-to-first-byte do not grow with the size of the result.
+     *
+     * Nothing is written until the first row arrives, so a query that fails before then is thrown to the handler,
+     * which can still answer with an error status. A failure after rows have been sent aborts the connection
+     * instead, so the client cannot mistake a cut-off array for a complete one.
+     */
+    private void streamMessages(Context context, MessageSource source) throws SQLException, IOException {
+        LazyArray array = new LazyArray(context);
+        try {
+            source.stream(array);
+            array.finish();
+        } catch (SQLException | IOException | RuntimeException e) {
+            if (!array.isStarted()) {
+                throw e;
+            }
+            abortResponse(context, e);
+        }
+    }
+
+    /**
+     * Drops the connection under a response that is already partly sent, so the client sees an incomplete
+     * response rather than a short one that looks complete.
+     */
+    private static void abortResponse(Context context, Throwable cause) {
+        cause.printStackTrace();
+        Request.getBaseRequest(context.req()).getHttpChannel().abort(cause);
+    }
+
+    /**
+     * A JSON array response that sets its status and opens the array only when the first message arrives.
+     */
+    private static final class LazyArray implements MessageHandler {
+        private final Context context;
+        private JsonGenerator generator;
+
+        private LazyArray(Context context) {
+            this.context = context;
+        }
+
+        @Override
+        public void handle(Message message) throws IOException {
+            if (generator == null) {
+                start();
+            }
+            JsonCodec.writeMessage(generator, message);
+        }
+
+        private boolean isStarted() {
+            return generator != null;
+        }
+
+        private void start() throws IOException {
+            context.status(200).contentType("application/json");
+            generator = JsonCodec.FACTORY.createGenerator(context.outputStream());
+            generator.writeStartArray();
+        }
+
+        // Ends the array, opening it first if there were no messages
+        private void finish() throws IOException {
+            if (generator == null) {
+                start();
+            }
+            generator.writeEndArray();
+            generator.close();
+        }
+    }
+
+    /**
+     * A query whose rows can be pushed to a MessageHandler one at a time.
+     */
+    @FunctionalInterface
+    private interface MessageSource {
+        void stream(MessageHandler handler) throws SQLException, IOException;
+    }
+
     // Validate message content (assuming message_text length is the primary concern)
     //Turns out I don't need this anymore but I will keep it here for now
     private void validateMessage(Message message) throws IllegalArgumentException {
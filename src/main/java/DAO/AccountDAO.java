@@ -2,13 +2,24 @@ package DAO;
 
 import Model.Account;
 import Util.ConnectionUtil;
+import Util.LatencyHistogram;
+import Util.Metrics;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+public class AccountDAO implements AccountStore {
+    // Execution time of every statement, exported at /metrics
+    private static final LatencyHistogram INSERT_TIMER = Metrics.sqlTimer("account_insert");
+    private static final LatencyHistogram SELECT_BY_USERNAME_TIMER = Metrics.sqlTimer("account_select_by_username");
+    private static final LatencyHistogram SELECT_BY_ID_TIMER = Metrics.sqlTimer("account_select_by_id");
+    private static final LatencyHistogram SELECT_IDS_TIMER = Metrics.sqlTimer("account_select_ids");
+    private static final LatencyHistogram SELECT_ALL_TIMER = Metrics.sqlTimer("account_select_all");
 
-public class AccountDAO {
     /**
      * Inserts a new Account into the database.
      * 
@@ -21,6 +32,7 @@ public class AccountDAO {
         String sql = "INSERT INTO Account (username, password) VALUES (?, ?);";
         
         // Try-with-resources statement automatically handles closing resources.
+        long start = System.nanoTime();
         try (Connection conn = ConnectionUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
             
@@ -43,6 +55,8 @@ public class AccountDAO {
                     throw new SQLException("Creating account failed, no ID obtained.");
                 }
             }
+        } finally {
+            INSERT_TIMER.record(System.nanoTime() - start);
         }
         // Return the account with the ID set.
         return account;
@@ -60,6 +74,7 @@ public class AccountDAO {
         String sql = "SELECT * FROM Account WHERE username = ?;";
         
         // Try-with-resources statement for resource management.
+        long start = System.nanoTime();
         try (Connection conn = ConnectionUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
@@ -73,6 +88,8 @@ public class AccountDAO {
                     account = new Account(rs.getInt("account_id"), rs.getString("username"), rs.getString("password"));
                 }
             }
+        } finally {
+            SELECT_BY_USERNAME_TIMER.record(System.nanoTime() - start);
         }
         // Return the found account or null.
         return account;
@@ -89,6 +106,7 @@ public class AccountDAO {
         Account account = null;
         String sql = "SELECT * FROM Account WHERE account_id = ?;";
 
+        long start = System.nanoTime();
         try (Connection conn = ConnectionUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
@@ -99,7 +117,52 @@ public class AccountDAO {
                     account = new Account(rs.getInt("account_id"), rs.getString("username"), rs.getString("password"));
                 }
             }
+        } finally {
+            SELECT_BY_ID_TIMER.record(System.nanoTime() - start);
         }
         return account;
     }
+
+    /**
+     * Passes every account_id in the database to the consumer, without building a list.
+     *
+     * @param consumer Receives each account_id in turn.
+     * @throws SQLException if a database access error occurs.
+     */
+    public void forEachAccountId(IntConsumer consumer) throws SQLException {
+        String sql = "SELECT account_id FROM Account;";
+
+        long start = System.nanoTime();
+        try (Connection conn = ConnectionUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                consumer.accept(rs.getInt(1));
+            }
+        } finally {
+            SELECT_IDS_TIMER.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Passes every account in the database to the consumer, in account_id order, without building a list.
+     *
+     * @param consumer Receives each account in turn.
+     * @throws SQLException if a database access error occurs.
+     */
+    public void forEachAccount(Consumer<Account> consumer) throws SQLException {
+        String sql = "SELECT * FROM Account ORDER BY account_id;";
+
+        long start = System.nanoTime();
+        try (Connection conn = ConnectionUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                consumer.accept(new Account(rs.getInt("account_id"), rs.getString("username"),
+                        rs.getString("password")));
+            }
+        } finally {
+            SELECT_ALL_TIMER.record(System.nanoTime() - start);
+        }
+    }
 }
@@ -0,0 +1,40 @@
+package DAO;
+
+import Model.Account;
+
+import java.sql.SQLException;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Storage for accounts. {@link AccountDAO} keeps them in the database; {@link InMemoryAccountStore} keeps them in
+ * process memory. Every method may throw SQLException so callers handle both the same way.
+ */
+public interface AccountStore {
+    /**
+     * @param account The account to create, without an account_id.
+     * @return The account with its generated account_id set.
+     * @throws SQLException if the username is already taken or the account cannot be stored.
+     */
+    Account createAccount(Account account) throws SQLException;
+
+    /**
+     * @return The account, or null if none has this username.
+     */
+    Account getAccountByUsername(String username) throws SQLException;
+
+    /**
+     * @return The account, or null if none has this account_id.
+     */
+    Account getAccountById(int accountId) throws SQLException;
+
+    /**
+     * Passes every account_id to the consumer, without building a list.
+     */
+    void forEachAccountId(IntConsumer consumer) throws SQLException;
+
+    /**
+     * Passes every account to the consumer, in account_id order.
+     */
+    void forEachAccount(Consumer<Account> consumer) throws SQLException;
+}
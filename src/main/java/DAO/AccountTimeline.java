@@ -0,0 +1,131 @@
+package DAO;
+
+import java.io.IOException;
+
+/**
+ * One account's message IDs in (time_posted_epoch, message_id) order, for the storage engines that keep their own
+ * indexes instead of relying on the database's (posted_by, time_posted_epoch) index.
+ *
+ * Readers take the volatile snapshot and never lock. Writers lock the timeline, so writes to one account are
+ * serialized. Appending the newest message writes past the end of the shared arrays, which no published snapshot
+ * can see, and then publishes a longer snapshot; inserts in the middle, removals and growth copy the arrays, so a
+ * published snapshot's contents never change.
+ */
+class AccountTimeline {
+    /**
+     * Receives message IDs from {@link #forEachNewestFirst}.
+     */
+    @FunctionalInterface
+    interface IdVisitor {
+        /**
+         * @return true if the ID counted towards the query's limit, false if it was skipped, e.g. because the
+         * message was deleted after the timeline was read
+         */
+        boolean visit(int messageId) throws IOException;
+    }
+
+    private volatile Snapshot snapshot = new Snapshot(new long[8], new int[8], 0);
+
+    synchronized void add(long epoch, int id) {
+        Snapshot current = snapshot;
+        int size = current.size;
+        int index = current.upperBound(epoch, id);
+        if (index == size && size < current.ids.length) {
+            current.epochs[size] = epoch;
+            current.ids[size] = id;
+            snapshot = new Snapshot(current.epochs, current.ids, size + 1);
+            return;
+        }
+        int capacity = size < current.ids.length ? current.ids.length : current.ids.length * 2;
+        long[] epochs = new long[capacity];
+        int[] ids = new int[capacity];
+        System.arraycopy(current.epochs, 0, epochs, 0, index);
+        System.arraycopy(current.ids, 0, ids, 0, index);
+        epochs[index] = epoch;
+        ids[index] = id;
+        System.arraycopy(current.epochs, index, epochs, index + 1, size - index);
+        System.arraycopy(current.ids, index, ids, index + 1, size - index);
+        snapshot = new Snapshot(epochs, ids, size + 1);
+    }
+
+    synchronized void remove(long epoch, int id) {
+        Snapshot current = snapshot;
+        int index = current.upperBound(epoch, id) - 1;
+        if (index < 0 || current.ids[index] != id || current.epochs[index] != epoch) {
+            return;
+        }
+        int size = current.size;
+        long[] epochs = new long[current.epochs.length];
+        int[] ids = new int[current.ids.length];
+        System.arraycopy(current.epochs, 0, epochs, 0, index);
+        System.arraycopy(current.ids, 0, ids, 0, index);
+        System.arraycopy(current.epochs, index + 1, epochs, index, size - index - 1);
+        System.arraycopy(current.ids, index + 1, ids, index, size - index - 1);
+        snapshot = new Snapshot(epochs, ids, size - 1);
+    }
+
+    /**
+     * Visits the IDs a timeline query selects, newest first, until the query's limit is reached.
+     */
+    void forEachNewestFirst(TimelineQuery query, IdVisitor visitor) throws IOException {
+        Snapshot current = snapshot;
+        int remaining = query.getLimit() == null ? Integer.MAX_VALUE : query.getLimit();
+        for (int i = current.upperBound(query.getBefore()) - 1; i >= 0 && remaining > 0; i--) {
+            if (query.getAfter() != null && current.epochs[i] <= query.getAfter()) {
+                break;
+            }
+            if (visitor.visit(current.ids[i])) {
+                remaining--;
+            }
+        }
+    }
+
+    private static final class Snapshot {
+        private final long[] epochs;
+        private final int[] ids;
+        private final int size;
+
+        private Snapshot(long[] epochs, int[] ids, int size) {
+            this.epochs = epochs;
+            this.ids = ids;
+            this.size = size;
+        }
+
+        /**
+         * @return the number of entries strictly before the epoch, or size if it is null
+         */
+        private int upperBound(Long before) {
+            if (before == null) {
+                return size;
+            }
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (epochs[mid] < before) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * @return the number of entries ordered at or before (epoch, id)
+         */
+        private int upperBound(long epoch, int id) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (epochs[mid] < epoch || (epochs[mid] == epoch && ids[mid] <= id)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
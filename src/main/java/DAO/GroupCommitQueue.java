@@ -0,0 +1,205 @@
+package DAO;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Collects rows written concurrently by many callers and hands them to a {@link BatchWriter} in groups, so that a
+ * single transaction commit is shared by the whole group instead of paid once per row.
+ *
+ * A background thread waits for the first queued row, then keeps collecting until either {@code maxBatchSize} rows
+ * are queued or {@code lingerMicros} have passed, and flushes. If a batch fails, its rows are retried one at a time
+ * so that a single bad row only fails its own caller.
+ *
+ * @param <T> the row type
+ */
+public class GroupCommitQueue<T> {
+    /**
+     * Writes a group of rows in one transaction, filling in any generated values on the rows themselves.
+     */
+    @FunctionalInterface
+    public interface BatchWriter<T> {
+        void write(List<T> rows) throws SQLException;
+    }
+
+    private final BatchWriter<T> writer;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final BlockingQueue<Pending<T>> queue = new LinkedBlockingQueue<>();
+    // Longest write() waits for its batch before giving up on it
+    private static final long WRITE_TIMEOUT_SECONDS = 30;
+
+    private final Thread flusher;
+    private volatile boolean running = true;
+    // submit() holds the read side while it checks running and queues, shutdown() the write side while it clears
+    // running, so no row can be queued after the flusher has been told to drain and stop
+    private final ReadWriteLock stateLock = new ReentrantReadWriteLock();
+
+    /**
+     * @param name used to name the background thread
+     * @param writer writes one batch of rows in a single transaction
+     * @param maxBatchSize the most rows flushed together
+     * @param lingerMicros how long to wait for more rows after the first one arrives
+     */
+    public GroupCommitQueue(String name, BatchWriter<T> writer, int maxBatchSize, long lingerMicros) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1.");
+        }
+        this.writer = writer;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, lingerMicros));
+        this.flusher = new Thread(this::run, name + "-group-commit");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Queues a row for the next batch.
+     *
+     * @param row the row to write
+     * @return a future completed with the same row once its batch has committed
+     */
+    public CompletableFuture<T> submit(T row) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        stateLock.readLock().lock();
+        try {
+            if (!running) {
+                future.completeExceptionally(new SQLException("Group commit queue is stopped."));
+                return future;
+            }
+            queue.add(new Pending<>(row, future));
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        return future;
+    }
+
+    /**
+     * Queues a row and blocks until its batch has committed.
+     *
+     * @param row the row to write
+     * @return the row, with any generated values filled in
+     * @throws SQLException if the row could not be written, or its batch did not finish within
+     * WRITE_TIMEOUT_SECONDS, in which case it may still be committed later
+     */
+    public T write(T row) throws SQLException {
+        try {
+            return submit(row).get(WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            throw new SQLException("Timed out waiting for group commit.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for group commit.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException("Group commit failed.", e.getCause());
+        }
+    }
+
+    /**
+     * Stops accepting rows and lets the background thread exit once everything already queued has been flushed.
+     * The thread is not interrupted, so a batch being written is never cut off mid-transaction.
+     */
+    public void shutdown() {
+        stateLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Waits for the background thread to exit after shutdown().
+     *
+     * @return true if it exited within the timeout
+     */
+    public boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+        flusher.join(timeoutMillis);
+        return !flusher.isAlive();
+    }
+
+    private void run() {
+        List<Pending<T>> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending<T> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    // Take whatever is already waiting before deciding whether to linger for more.
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    Pending<T> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // shutdown() does not interrupt; if anything else does, flush what we have and drain the rest next loop.
+                queue.drainTo(batch, maxBatchSize - batch.size());
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pending<T>> batch) {
+        List<T> rows = new ArrayList<>(batch.size());
+        for (Pending<T> pending : batch) {
+            rows.add(pending.row);
+        }
+        try {
+            writer.write(rows);
+            for (Pending<T> pending : batch) {
+                pending.future.complete(pending.row);
+            }
+        } catch (SQLException | RuntimeException batchFailure) {
+            if (batch.size() == 1) {
+                batch.get(0).future.completeExceptionally(batchFailure);
+                return;
+            }
+            // Isolate the failing row(s) so valid rows in the same batch still succeed.
+            for (Pending<T> pending : batch) {
+                try {
+                    writer.write(List.of(pending.row));
+                    pending.future.complete(pending.row);
+                } catch (SQLException | RuntimeException rowFailure) {
+                    pending.future.completeExceptionally(rowFailure);
+                }
+            }
+        }
+    }
+
+    private static final class Pending<T> {
+        private final T row;
+        private final CompletableFuture<T> future;
+
+        private Pending(T row, CompletableFuture<T> future) {
+            this.row = row;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package DAO;
+
+import Model.Account;
+import Util.ChunkedIdMap;
+
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Keeps accounts in process memory instead of the database, with lock-free lookups by account_id and by username.
+ *
+ * Stored accounts are private copies that are never modified; callers always get a fresh copy, as they would from
+ * a query. The same constraints as the Account table are enforced: usernames are unique and both columns hold at
+ * most 255 characters.
+ *
+ * With a {@link MemoryJournal}, each new account is logged before it becomes visible, so it survives a restart.
+ */
+public class InMemoryAccountStore implements AccountStore {
+    private static final int MAX_COLUMN_LENGTH = 255;
+
+    private final ChunkedIdMap<Account> accountsById = new ChunkedIdMap<>();
+    private final ConcurrentMap<String, Account> accountsByUsername = new ConcurrentHashMap<>();
+    private final AtomicInteger lastId = new AtomicInteger();
+    // Null when nothing is persisted
+    private final MemoryJournal journal;
+
+    public InMemoryAccountStore() {
+        this(null);
+    }
+
+    /**
+     * @param journal where new accounts are logged, or null to keep them only in memory
+     */
+    public InMemoryAccountStore(MemoryJournal journal) {
+        this.journal = journal;
+    }
+
+    @Override
+    public Account createAccount(Account account) throws SQLException {
+        String username = account.getUsername();
+        if (username == null) {
+            throw new SQLException("Creating account failed, username is null.");
+        }
+        if (username.length() > MAX_COLUMN_LENGTH
+                || (account.getPassword() != null && account.getPassword().length() > MAX_COLUMN_LENGTH)) {
+            throw new SQLException("Creating account failed, value too long.");
+        }
+        int id = lastId.incrementAndGet();
+        Account stored = new Account(id, username, account.getPassword());
+        if (journal == null) {
+            insert(stored);
+        } else {
+            synchronized (journal) {
+                // Checked first so a rejected account is never logged; every journaled writer holds this lock
+                if (accountsByUsername.containsKey(username)) {
+                    throw usernameTaken();
+                }
+                journal.logAccount(stored);
+                journal.commit();
+                insert(stored);
+            }
+        }
+        account.setAccount_id(id);
+        return account;
+    }
+
+    @Override
+    public Account getAccountByUsername(String username) {
+        return username == null ? null : copyOf(accountsByUsername.get(username));
+    }
+
+    @Override
+    public Account getAccountById(int accountId) {
+        return copyOf(accountsById.get(accountId));
+    }
+
+    /**
+     * @return true if the account exists, without copying it
+     */
+    boolean contains(int accountId) {
+        return accountsById.get(accountId) != null;
+    }
+
+    @Override
+    public void forEachAccountId(IntConsumer consumer) {
+        int highest = accountsById.getHighestId();
+        for (int id = 1; id <= highest; id++) {
+            if (accountsById.get(id) != null) {
+                consumer.accept(id);
+            }
+        }
+    }
+
+    @Override
+    public void forEachAccount(Consumer<Account> consumer) {
+        int highest = accountsById.getHighestId();
+        for (int id = 1; id <= highest; id++) {
+            Account account = accountsById.get(id);
+            if (account != null) {
+                consumer.accept(copyOf(account));
+            }
+        }
+    }
+
+    /**
+     * Adds an account that already has an account_id, e.g. one copied from the database. New accounts are given
+     * IDs above every loaded one.
+     */
+    public void load(Account account) {
+        Account stored = new Account(account.getAccount_id(), account.getUsername(), account.getPassword());
+        if (accountsById.putIfAbsent(stored.getAccount_id(), stored) && stored.getUsername() != null) {
+            accountsByUsername.putIfAbsent(stored.getUsername(), stored);
+        }
+        lastId.accumulateAndGet(stored.getAccount_id(), Math::max);
+    }
+
+    /**
+     * @return the highest account_id handed out so far
+     */
+    int getLastId() {
+        return lastId.get();
+    }
+
+    /**
+     * Makes sure new accounts get IDs above this one, e.g. one restored from a snapshot.
+     */
+    void reserveIds(int lastAccountId) {
+        lastId.accumulateAndGet(lastAccountId, Math::max);
+    }
+
+    /**
+     * @return the number of accounts held
+     */
+    public int size() {
+        return accountsById.size();
+    }
+
+    private void insert(Account stored) throws SQLException {
+        // Like the unique constraint, a taken username still uses up the generated ID
+        if (accountsByUsername.putIfAbsent(stored.getUsername(), stored) != null) {
+            throw usernameTaken();
+        }
+        accountsById.putIfAbsent(stored.getAccount_id(), stored);
+    }
+
+    private static SQLException usernameTaken() {
+        return new SQLException("Creating account failed, username is already taken.");
+    }
+
+    private static Account copyOf(Account account) {
+        return account == null ? null
+                : new Account(account.getAccount_id(), account.getUsername(), account.getPassword());
+    }
+}
@@ -0,0 +1,333 @@
+package DAO;
+
+import Model.Message;
+import Util.ChunkedIdMap;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps messages in process memory instead of the database.
+ *
+ * Messages are held in a {@link ChunkedIdMap} keyed by message_id, and each account has an {@link AccountTimeline}
+ * that answers timeline queries the way the (posted_by, time_posted_epoch) index does. Every read is lock-free.
+ * Stored messages are never modified; an update swaps in a new object with a compare-and-set, and callers always
+ * get copies, as they would from a query.
+ *
+ * The Message table's constraints are enforced: posted_by must be an existing account and message_text holds at
+ * most 255 characters.
+ *
+ * With a {@link MemoryJournal}, every create, update and delete is logged before it is applied, so it survives a
+ * restart. Writes then take the journal's lock so they reach the log in the order they are applied; reads stay
+ * lock-free.
+ */
+public class InMemoryMessageStore implements MessageStore {
+    private static final int MAX_TEXT_LENGTH = 255;
+
+    private final InMemoryAccountStore accounts;
+    private final ChunkedIdMap<Message> messages = new ChunkedIdMap<>();
+    private final ConcurrentMap<Integer, AccountTimeline> timelines = new ConcurrentHashMap<>();
+    private final AtomicInteger lastId = new AtomicInteger();
+    // Null when nothing is persisted
+    private final MemoryJournal journal;
+
+    /**
+     * @param accounts the store posted_by is checked against
+     */
+    public InMemoryMessageStore(InMemoryAccountStore accounts) {
+        this(accounts, null);
+    }
+
+    /**
+     * @param accounts the store posted_by is checked against
+     * @param journal where changes are logged, or null to keep them only in memory
+     */
+    public InMemoryMessageStore(InMemoryAccountStore accounts, MemoryJournal journal) {
+        this.accounts = accounts;
+        this.journal = journal;
+    }
+
+    @Override
+    public Message createMessage(Message message) throws SQLException {
+        validate(message);
+        if (journal == null) {
+            insert(message);
+            return message;
+        }
+        synchronized (journal) {
+            Message stored = nextMessage(message);
+            journal.logMessage(stored);
+            journal.commit();
+            insert(stored, message);
+        }
+        return message;
+    }
+
+    @Override
+    public void createMessages(List<Message> batch) throws SQLException {
+        // Check the whole batch first so that either every message is inserted or none are
+        for (Message message : batch) {
+            validate(message);
+        }
+        if (journal == null) {
+            for (Message message : batch) {
+                insert(message);
+            }
+            return;
+        }
+        synchronized (journal) {
+            List<Message> stored = new ArrayList<>(batch.size());
+            for (Message message : batch) {
+                stored.add(nextMessage(message));
+                journal.logMessage(stored.get(stored.size() - 1));
+            }
+            // One frame, so the batch is replayed whole or not at all
+            journal.commit();
+            for (int i = 0; i < batch.size(); i++) {
+                insert(stored.get(i), batch.get(i));
+            }
+        }
+    }
+
+    @Override
+    public List<Message> getAllMessages() {
+        return getMessagesAfter(0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Message> getMessagesAfter(int afterMessageId, int limit) {
+        List<Message> result = new ArrayList<>(Math.min(limit, 1024));
+        int highest = messages.getHighestId();
+        for (int id = Math.max(afterMessageId, 0) + 1; id <= highest && result.size() < limit; id++) {
+            Message message = messages.get(id);
+            if (message != null) {
+                result.add(copyOf(message));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void streamAllMessages(MessageHandler handler) throws IOException {
+        Message scratch = new Message();
+        int highest = messages.getHighestId();
+        for (int id = 1; id <= highest; id++) {
+            Message message = messages.get(id);
+            if (message != null) {
+                handler.handle(copyInto(message, scratch));
+            }
+        }
+    }
+
+    @Override
+    public void streamMessagesPostedBetween(Long after, Long before, MessageHandler handler) throws IOException {
+        streamAllMessages(message -> {
+            long posted = message.getTime_posted_epoch();
+            if ((after == null || posted > after) && (before == null || posted < before)) {
+                handler.handle(message);
+            }
+        });
+    }
+
+    @Override
+    public void streamMessagesByUserId(TimelineQuery query, MessageHandler handler) throws IOException {
+        AccountTimeline timeline = timelines.get(query.getAccountId());
+        if (timeline == null) {
+            return;
+        }
+        Message scratch = new Message();
+        timeline.forEachNewestFirst(query, id -> {
+            Message message = messages.get(id);
+            // Null only if the message was deleted after the timeline was read
+            if (message == null) {
+                return false;
+            }
+            handler.handle(copyInto(message, scratch));
+            return true;
+        });
+    }
+
+    @Override
+    public Message getMessageById(int messageId) {
+        Message message = messages.get(messageId);
+        return message == null ? null : copyOf(message);
+    }
+
+    @Override
+    public List<Message> getMessagesByIds(int[] messageIds) {
+        int[] ids = messageIds.clone();
+        Arrays.sort(ids);
+        List<Message> result = new ArrayList<>(ids.length);
+        for (int i = ids.length - 1; i >= 0; i--) {
+            if (i < ids.length - 1 && ids[i] == ids[i + 1]) {
+                continue;
+            }
+            Message message = messages.get(ids[i]);
+            if (message != null) {
+                result.add(copyOf(message));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Message deleteMessage(int messageId) throws SQLException {
+        if (journal == null) {
+            Message removed = unload(messageId);
+            return removed == null ? null : copyOf(removed);
+        }
+        synchronized (journal) {
+            Message current = messages.get(messageId);
+            if (current == null) {
+                return null;
+            }
+            journal.logDelete(messageId);
+            journal.commit();
+            unload(messageId);
+            return copyOf(current);
+        }
+    }
+
+    @Override
+    public Message updateMessageText(int messageId, String messageText) throws SQLException {
+        if (messageText != null && messageText.length() > MAX_TEXT_LENGTH) {
+            throw new SQLException("Updating message failed, value too long.");
+        }
+        // posted_by and time_posted_epoch never change, so the account's timeline is unaffected
+        if (journal == null) {
+            Message updated = messages.update(messageId, current -> withText(current, messageText));
+            return updated == null ? null : copyOf(updated);
+        }
+        synchronized (journal) {
+            Message current = messages.get(messageId);
+            if (current == null) {
+                return null;
+            }
+            Message updated = withText(current, messageText);
+            journal.logMessage(updated);
+            journal.commit();
+            // No other journaled writer can have changed it while the lock is held
+            messages.replace(messageId, current, updated);
+            return copyOf(updated);
+        }
+    }
+
+    @Override
+    public List<Message> getMessagesByUserId(TimelineQuery query) {
+        List<Message> result = new ArrayList<>();
+        try {
+            streamMessagesByUserId(query, message -> result.add(copyOf(message)));
+        } catch (IOException e) {
+            // Adding to a list does no I/O
+            throw new IllegalStateException(e);
+        }
+        return result;
+    }
+
+    /**
+     * Adds a message that already has a message_id, e.g. one copied from the database, or replaces the stored
+     * message with that ID. New messages are given IDs above every loaded one. Nothing is journaled.
+     */
+    public void load(Message message) {
+        Message stored = copyOf(message);
+        if (messages.putIfAbsent(stored.getMessage_id(), stored)) {
+            timelineFor(stored.getPosted_by()).add(stored.getTime_posted_epoch(), stored.getMessage_id());
+        } else {
+            // Replayed from the journal over a snapshot that already had it; only the text can differ
+            messages.update(stored.getMessage_id(), current -> stored);
+        }
+        lastId.accumulateAndGet(stored.getMessage_id(), Math::max);
+    }
+
+    /**
+     * Removes a message without journaling it.
+     *
+     * @return the removed message, or null if there was none
+     */
+    Message unload(int messageId) {
+        Message removed = messages.remove(messageId);
+        if (removed != null) {
+            AccountTimeline timeline = timelines.get(removed.getPosted_by());
+            if (timeline != null) {
+                timeline.remove(removed.getTime_posted_epoch(), messageId);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * @return the highest message_id handed out so far
+     */
+    int getLastId() {
+        return lastId.get();
+    }
+
+    /**
+     * Makes sure new messages get IDs above this one, e.g. one restored from a snapshot.
+     */
+    void reserveIds(int lastMessageId) {
+        lastId.accumulateAndGet(lastMessageId, Math::max);
+    }
+
+    /**
+     * @return the number of messages held
+     */
+    public int size() {
+        return messages.size();
+    }
+
+    private void validate(Message message) throws SQLException {
+        if (!accounts.contains(message.getPosted_by())) {
+            throw new SQLException("Creating message failed, posted_by " + message.getPosted_by()
+                    + " is not an existing account.");
+        }
+        if (message.getMessage_text() != null && message.getMessage_text().length() > MAX_TEXT_LENGTH) {
+            throw new SQLException("Creating message failed, value too long.");
+        }
+    }
+
+    private void insert(Message message) {
+        insert(nextMessage(message), message);
+    }
+
+    private Message nextMessage(Message message) {
+        return new Message(lastId.incrementAndGet(), message.getPosted_by(), message.getMessage_text(),
+                message.getTime_posted_epoch());
+    }
+
+    private void insert(Message stored, Message message) {
+        int id = stored.getMessage_id();
+        // Stored before it is added to the timeline, so every ID a timeline holds can be resolved
+        messages.putIfAbsent(id, stored);
+        timelineFor(stored.getPosted_by()).add(stored.getTime_posted_epoch(), id);
+        message.setMessage_id(id);
+    }
+
+    private AccountTimeline timelineFor(int accountId) {
+        return timelines.computeIfAbsent(accountId, key -> new AccountTimeline());
+    }
+
+    private static Message withText(Message message, String messageText) {
+        return new Message(message.getMessage_id(), message.getPosted_by(), messageText,
+                message.getTime_posted_epoch());
+    }
+
+    private static Message copyOf(Message message) {
+        return new Message(message.getMessage_id(), message.getPosted_by(), message.getMessage_text(),
+                message.getTime_posted_epoch());
+    }
+
+    private static Message copyInto(Message message, Message target) {
+        target.setMessage_id(message.getMessage_id());
+        target.setPosted_by(message.getPosted_by());
+        target.setMessage_text(message.getMessage_text());
+        target.setTime_posted_epoch(message.getTime_posted_epoch());
+        return target;
+    }
+}
@@ -0,0 +1,653 @@
+package DAO;
+
+import Model.Message;
+import Util.ChunkedIdMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps messages in an append-only log of memory-mapped segment files instead of the database.
+ *
+ * Every create and update appends a full record and every delete appends a tombstone; nothing is ever overwritten.
+ * An in-memory index maps each live message_id to the position of its latest record, together with posted_by and
+ * time_posted_epoch, and each account has an {@link AccountTimeline} for timeline queries. Reads go through the
+ * index and decode message_text straight from the mapped pages, with no read call or intermediate buffer. Writes
+ * are serialized by one lock; reads take no lock at all.
+ *
+ * When the active segment is full a new one is started; a batch opens every segment it will need before writing
+ * its first record, so it cannot fail halfway through. A background task compacts sealed segments whose live
+ * records have fallen below a threshold: live records are appended again to the active segment, tombstones are kept
+ * while an older segment might still hold the record they delete, and the old file is deleted. On startup the
+ * segments are replayed in order to rebuild the index, stopping at the first record whose checksum does not match,
+ * so a write torn by a crash is dropped.
+ *
+ * Record layout, big-endian:
+ * <pre>
+ * int    record length in bytes, including this field and the checksum
+ * byte   type: 1 = message, 2 = tombstone
+ * int    message_id
+ * int    posted_by
+ * long   time_posted_epoch
+ * int    message_text length in UTF-8 bytes, -1 for null
+ * byte[] message_text
+ * int    CRC32 of everything from the type byte to the end of the text
+ * </pre>
+ *
+ * Writes reach the file through the page cache; with syncOnWrite every write call also forces the segment to disk.
+ * posted_by is not checked against the Account table here: MessageService's callers validate it first.
+ */
+public class LogMessageStore implements MessageStore, AutoCloseable {
+    private static final byte PUT = 1;
+    private static final byte TOMBSTONE = 2;
+    private static final int HEADER_BYTES = 25;
+    private static final int CHECKSUM_BYTES = 4;
+    private static final int MAX_TEXT_LENGTH = 255;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final boolean syncOnWrite;
+    private final double compactionThreshold;
+
+    // Oldest first, so compaction and replay can walk them in order
+    private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    private final ChunkedIdMap<Entry> index = new ChunkedIdMap<>();
+    private final ConcurrentMap<Integer, AccountTimeline> timelines = new ConcurrentHashMap<>();
+    // Guards every append and index change; reads never take it
+    private final Object writeLock = new Object();
+    private Segment active;
+    // Segments opened ahead of a batch so that it never has to open one halfway through; used before new ones
+    private final ArrayDeque<Segment> spares = new ArrayDeque<>();
+    private int lastId;
+    private boolean closed;
+    private final ScheduledExecutorService compactor;
+
+    /**
+     * Opens the log in a directory, creating it if needed and replaying any segments already there.
+     *
+     * @param directory where segment files live
+     * @param segmentBytes the size of each segment file
+     * @param syncOnWrite force each write to disk before returning
+     * @param compactionThreshold compact a sealed segment once its live bytes fall below this fraction
+     * @param compactionIntervalMillis how often to look for segments to compact, or 0 to never compact in the
+     *                                 background
+     * @throws IOException if the directory or a segment cannot be opened
+     */
+    public LogMessageStore(Path directory, int segmentBytes, boolean syncOnWrite, double compactionThreshold,
+                           long compactionIntervalMillis) throws IOException {
+        if (segmentBytes < HEADER_BYTES + MAX_TEXT_LENGTH * 3 + CHECKSUM_BYTES) {
+            throw new IllegalArgumentException("Segments must be able to hold the largest record.");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.syncOnWrite = syncOnWrite;
+        this.compactionThreshold = compactionThreshold;
+        Files.createDirectories(directory);
+        recover();
+        if (compactionIntervalMillis > 0) {
+            compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "message-log-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            compactor.scheduleWithFixedDelay(this::compactQuietly, compactionIntervalMillis,
+                    compactionIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            compactor = null;
+        }
+    }
+
+    /**
+     * Deletes every segment file in a directory, leaving an empty log.
+     */
+    public static void truncate(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Override
+    public Message createMessage(Message message) throws SQLException {
+        byte[] text = encode(message.getMessage_text());
+        synchronized (writeLock) {
+            int id = lastId + 1;
+            put(id, message.getPosted_by(), message.getTime_posted_epoch(), text);
+            lastId = id;
+            sync();
+            message.setMessage_id(id);
+        }
+        return message;
+    }
+
+    @Override
+    public void createMessages(List<Message> messages) throws SQLException {
+        byte[][] texts = new byte[messages.size()][];
+        // Encode, and so validate, the whole batch before writing any of it
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = encode(messages.get(i).getMessage_text());
+        }
+        synchronized (writeLock) {
+            // Open every segment the batch will roll into first, so a failure leaves none of it in the log
+            reserve(texts);
+            for (int i = 0; i < texts.length; i++) {
+                Message message = messages.get(i);
+                int id = lastId + 1;
+                put(id, message.getPosted_by(), message.getTime_posted_epoch(), texts[i]);
+                lastId = id;
+                message.setMessage_id(id);
+            }
+            // One forced write for the whole batch
+            sync();
+        }
+    }
+
+    @Override
+    public List<Message> getAllMessages() {
+        return getMessagesAfter(0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Message> getMessagesAfter(int afterMessageId, int limit) {
+        List<Message> result = new ArrayList<>(Math.min(limit, 1024));
+        int highest = index.getHighestId();
+        for (int id = Math.max(afterMessageId, 0) + 1; id <= highest && result.size() < limit; id++) {
+            Entry entry = index.get(id);
+            if (entry != null) {
+                result.add(read(id, entry, new Message()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void streamAllMessages(MessageHandler handler) throws IOException {
+        Message scratch = new Message();
+        int highest = index.getHighestId();
+        for (int id = 1; id <= highest; id++) {
+            Entry entry = index.get(id);
+            if (entry != null) {
+                handler.handle(read(id, entry, scratch));
+            }
+        }
+    }
+
+    @Override
+    public void streamMessagesPostedBetween(Long after, Long before, MessageHandler handler) throws IOException {
+        streamAllMessages(message -> {
+            long posted = message.getTime_posted_epoch();
+            if ((after == null || posted > after) && (before == null || posted < before)) {
+                handler.handle(message);
+            }
+        });
+    }
+
+    @Override
+    public void streamMessagesByUserId(TimelineQuery query, MessageHandler handler) throws IOException {
+        AccountTimeline timeline = timelines.get(query.getAccountId());
+        if (timeline == null) {
+            return;
+        }
+        Message scratch = new Message();
+        timeline.forEachNewestFirst(query, id -> {
+            Entry entry = index.get(id);
+            if (entry == null) {
+                return false;
+            }
+            handler.handle(read(id, entry, scratch));
+            return true;
+        });
+    }
+
+    @Override
+    public Message getMessageById(int messageId) {
+        Entry entry = index.get(messageId);
+        return entry == null ? null : read(messageId, entry, new Message());
+    }
+
+    @Override
+    public List<Message> getMessagesByIds(int[] messageIds) {
+        int[] ids = messageIds.clone();
+        Arrays.sort(ids);
+        List<Message> result = new ArrayList<>(ids.length);
+        for (int i = ids.length - 1; i >= 0; i--) {
+            if (i < ids.length - 1 && ids[i] == ids[i + 1]) {
+                continue;
+            }
+            Message message = getMessageById(ids[i]);
+            if (message != null) {
+                result.add(message);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Message deleteMessage(int messageId) throws SQLException {
+        synchronized (writeLock) {
+            Entry entry = index.get(messageId);
+            if (entry == null) {
+                return null;
+            }
+            Message deleted = read(messageId, entry, new Message());
+            append(TOMBSTONE, messageId, entry.postedBy, entry.epoch, null);
+            index.remove(messageId);
+            entry.segment.liveBytes.addAndGet(-entry.length);
+            timelineFor(entry.postedBy).remove(entry.epoch, messageId);
+            sync();
+            return deleted;
+        }
+    }
+
+    @Override
+    public Message updateMessageText(int messageId, String messageText) throws SQLException {
+        byte[] text = encode(messageText);
+        synchronized (writeLock) {
+            Entry entry = index.get(messageId);
+            if (entry == null) {
+                return null;
+            }
+            put(messageId, entry.postedBy, entry.epoch, text);
+            sync();
+            return new Message(messageId, entry.postedBy, messageText, entry.epoch);
+        }
+    }
+
+    @Override
+    public List<Message> getMessagesByUserId(TimelineQuery query) {
+        List<Message> result = new ArrayList<>();
+        try {
+            streamMessagesByUserId(query, message -> result.add(new Message(message.getMessage_id(),
+                    message.getPosted_by(), message.getMessage_text(), message.getTime_posted_epoch())));
+        } catch (IOException e) {
+            // Adding to a list does no I/O
+            throw new IllegalStateException(e);
+        }
+        return result;
+    }
+
+    /**
+     * Appends a message that already has a message_id, e.g. one copied from the database. New messages are given
+     * IDs above every loaded one.
+     */
+    public void load(Message message) throws SQLException {
+        byte[] text = encode(message.getMessage_text());
+        synchronized (writeLock) {
+            put(message.getMessage_id(), message.getPosted_by(), message.getTime_posted_epoch(), text);
+            lastId = Math.max(lastId, message.getMessage_id());
+        }
+    }
+
+    /**
+     * @return the number of live messages
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * @return the number of segment files
+     */
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Compacts every sealed segment whose live bytes are below the threshold, oldest first. Runs in the
+     * background on a timer, and may also be called directly.
+     *
+     * @return the number of segments compacted
+     * @throws IOException if a segment file cannot be deleted
+     * @throws SQLException if a record cannot be copied
+     */
+    public int compact() throws IOException, SQLException {
+        int compacted = 0;
+        for (Segment segment : segments.values()) {
+            synchronized (writeLock) {
+                if (closed || segment == active) {
+                    break;
+                }
+            }
+            if (segment.liveBytes.get() < segment.writePosition * compactionThreshold) {
+                compactSegment(segment);
+                compacted++;
+            }
+        }
+        return compacted;
+    }
+
+    /**
+     * Stops background compaction and forces every segment to disk.
+     */
+    @Override
+    public void close() throws IOException {
+        if (compactor != null) {
+            compactor.shutdownNow();
+        }
+        synchronized (writeLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (Segment segment : segments.values()) {
+                segment.buffer.force();
+                segment.channel.close();
+            }
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException | SQLException | RuntimeException e) {
+            // The segment is left in place and retried on the next run
+            e.printStackTrace();
+        }
+    }
+
+    private void compactSegment(Segment segment) throws IOException, SQLException {
+        ByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (position < segment.writePosition) {
+            int length = buffer.getInt(position);
+            byte type = buffer.get(position + 4);
+            int id = buffer.getInt(position + 5);
+            synchronized (writeLock) {
+                if (closed) {
+                    return;
+                }
+                if (type == PUT) {
+                    Entry entry = index.get(id);
+                    // Copy the record only if it is still the latest one for its message
+                    if (entry != null && entry.segment == segment && entry.offset == position) {
+                        put(id, entry.postedBy, entry.epoch, textBytes(segment, position));
+                    }
+                } else if (!segment.id.equals(segments.firstKey())) {
+                    // An older segment may still hold the record this tombstone deletes
+                    append(TOMBSTONE, id, buffer.getInt(position + 9), buffer.getLong(position + 13), null);
+                }
+            }
+            position += length;
+        }
+        synchronized (writeLock) {
+            sync();
+            segments.remove(segment.id);
+            if (!closed) {
+                segment.channel.close();
+            }
+        }
+        // Readers still holding an entry in this segment keep the mapping alive until they are done
+        Files.delete(segment.path);
+    }
+
+    // Caller holds writeLock
+    private void put(int id, int postedBy, long epoch, byte[] text) throws SQLException {
+        Entry entry = append(PUT, id, postedBy, epoch, text);
+        Entry previous = index.get(id);
+        if (previous == null) {
+            index.putIfAbsent(id, entry);
+            timelineFor(postedBy).add(epoch, id);
+        } else {
+            index.replace(id, previous, entry);
+            previous.segment.liveBytes.addAndGet(-previous.length);
+        }
+    }
+
+    // Caller holds writeLock
+    private Entry append(byte type, int id, int postedBy, long epoch, byte[] text) throws SQLException {
+        if (closed) {
+            throw new SQLException("Message log is closed.");
+        }
+        int textLength = text == null ? -1 : text.length;
+        int length = recordLength(text);
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.putInt(length).put(type).putInt(id).putInt(postedBy).putLong(epoch).putInt(textLength);
+        if (text != null) {
+            record.put(text);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 4, length - 4 - CHECKSUM_BYTES);
+        record.putInt((int) crc.getValue());
+        try {
+            if (active.writePosition + length > segmentBytes) {
+                roll();
+            }
+        } catch (IOException e) {
+            throw new SQLException("Could not start a new log segment.", e);
+        }
+        Segment segment = active;
+        int offset = segment.writePosition;
+        ByteBuffer target = segment.buffer.duplicate();
+        target.position(offset);
+        target.put(record.array());
+        segment.writePosition = offset + length;
+        if (type == PUT) {
+            segment.liveBytes.addAndGet(length);
+        }
+        return new Entry(segment, offset, length, postedBy, epoch);
+    }
+
+    // Caller holds writeLock
+    private void sync() {
+        if (syncOnWrite) {
+            active.buffer.force();
+        }
+    }
+
+    // Caller holds writeLock
+    private void reserve(byte[][] texts) throws SQLException {
+        if (closed) {
+            throw new SQLException("Message log is closed.");
+        }
+        int position = active.writePosition;
+        int needed = 0;
+        for (byte[] text : texts) {
+            int length = recordLength(text);
+            if (position + length > segmentBytes) {
+                needed++;
+                position = 0;
+            }
+            position += length;
+        }
+        try {
+            while (spares.size() < needed) {
+                Segment last = spares.isEmpty() ? active : spares.peekLast();
+                spares.add(openSegment(last.id + 1));
+            }
+        } catch (IOException e) {
+            throw new SQLException("Could not start a new log segment.", e);
+        }
+    }
+
+    private static int recordLength(byte[] text) {
+        return HEADER_BYTES + (text == null ? 0 : text.length) + CHECKSUM_BYTES;
+    }
+
+    // Caller holds writeLock
+    private void roll() throws IOException {
+        Segment previous = active;
+        Segment spare = spares.poll();
+        active = spare != null ? spare : openSegment(previous == null ? 1 : previous.id + 1);
+        if (previous != null) {
+            previous.buffer.force();
+        }
+    }
+
+    private Segment openSegment(int id) throws IOException {
+        Path path = directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        Segment segment = new Segment(id, path, channel, buffer);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    /**
+     * Replays every segment, oldest first, to rebuild the index and timelines.
+     */
+    private void recover() throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                ids.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        ids.sort(null);
+        synchronized (writeLock) {
+            for (int id : ids) {
+                active = openSegment(id);
+                replay(active);
+            }
+            if (active == null) {
+                roll();
+            }
+        }
+    }
+
+    // Caller holds writeLock
+    private void replay(Segment segment) {
+        ByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (position + HEADER_BYTES + CHECKSUM_BYTES <= segmentBytes) {
+            int length = buffer.getInt(position);
+            if (length < HEADER_BYTES + CHECKSUM_BYTES || position + length > segmentBytes
+                    || !checksumMatches(buffer, position, length)) {
+                break;
+            }
+            byte type = buffer.get(position + 4);
+            int id = buffer.getInt(position + 5);
+            int postedBy = buffer.getInt(position + 9);
+            long epoch = buffer.getLong(position + 13);
+            Entry entry = new Entry(segment, position, length, postedBy, epoch);
+            Entry previous = index.get(id);
+            if (previous != null) {
+                previous.segment.liveBytes.addAndGet(-previous.length);
+                index.remove(id);
+                timelineFor(previous.postedBy).remove(previous.epoch, id);
+            }
+            if (type == PUT) {
+                index.putIfAbsent(id, entry);
+                timelineFor(postedBy).add(epoch, id);
+                segment.liveBytes.addAndGet(length);
+            }
+            lastId = Math.max(lastId, id);
+            position += length;
+        }
+        segment.writePosition = position;
+        // Clear whatever a torn write left behind, so later appends are not followed by stale bytes
+        for (int i = position; i < Math.min(segmentBytes, position + HEADER_BYTES + MAX_TEXT_LENGTH * 3 + CHECKSUM_BYTES); i++) {
+            buffer.put(i, (byte) 0);
+        }
+    }
+
+    private static boolean checksumMatches(ByteBuffer buffer, int position, int length) {
+        CRC32 crc = new CRC32();
+        for (int i = position + 4; i < position + length - CHECKSUM_BYTES; i++) {
+            crc.update(buffer.get(i));
+        }
+        return (int) crc.getValue() == buffer.getInt(position + length - CHECKSUM_BYTES);
+    }
+
+    /**
+     * Builds a message from an index entry, decoding the text straight from the mapped segment.
+     */
+    private static Message read(int id, Entry entry, Message target) {
+        target.setMessage_id(id);
+        target.setPosted_by(entry.postedBy);
+        target.setTime_posted_epoch(entry.epoch);
+        byte[] text = textBytes(entry.segment, entry.offset);
+        target.setMessage_text(text == null ? null : new String(text, StandardCharsets.UTF_8));
+        return target;
+    }
+
+    private static byte[] textBytes(Segment segment, int offset) {
+        ByteBuffer buffer = segment.buffer;
+        int textLength = buffer.getInt(offset + 21);
+        if (textLength < 0) {
+            return null;
+        }
+        byte[] text = new byte[textLength];
+        for (int i = 0; i < textLength; i++) {
+            text[i] = buffer.get(offset + HEADER_BYTES + i);
+        }
+        return text;
+    }
+
+    private static byte[] encode(String text) throws SQLException {
+        if (text == null) {
+            return null;
+        }
+        if (text.length() > MAX_TEXT_LENGTH) {
+            throw new SQLException("Writing message failed, value too long.");
+        }
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private AccountTimeline timelineFor(int accountId) {
+        return timelines.computeIfAbsent(accountId, key -> new AccountTimeline());
+    }
+
+    private static final class Segment {
+        private final Integer id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        // Only written under writeLock; compaction reads it for sealed segments, which no longer change
+        private volatile int writePosition;
+        private final AtomicLong liveBytes = new AtomicLong();
+
+        private Segment(int id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * Where a message's latest record is, plus the fields timeline queries need without touching the segment.
+     */
+    private static final class Entry {
+        private final Segment segment;
+        private final int offset;
+        private final int length;
+        private final int postedBy;
+        private final long epoch;
+
+        private Entry(Segment segment, int offset, int length, int postedBy, long epoch) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.postedBy = postedBy;
+            this.epoch = epoch;
+        }
+    }
+}
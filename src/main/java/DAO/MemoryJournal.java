@@ -0,0 +1,473 @@
+package DAO;
+
+import Model.Account;
+import Model.Message;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Makes the in-memory engine survive restarts with periodic snapshots plus a write-ahead log.
+ *
+ * Each write to InMemoryAccountStore or InMemoryMessageStore is logged here before it is applied. The stores hold
+ * this object's monitor while they log, commit and apply, so the log order is the order the changes were made. A
+ * commit appends one frame, its length, the records and a CRC32, so a batch is replayed whole or not at all.
+ *
+ * A snapshot first starts a new log file, then writes every account and message to a snapshot file with the same
+ * sequence number. Writers are only held up while the log file is switched; the snapshot itself is written while
+ * they carry on, so it may already contain some changes from the new log. Replay is idempotent (a message record
+ * replaces the message, a delete removes it if present), so replaying the whole new log on top still ends in the
+ * right state. Once the snapshot is complete, older snapshots and logs are deleted.
+ *
+ * On startup the newest snapshot whose checksum matches is loaded and every log from its sequence number on is
+ * replayed, each up to its first incomplete frame. Writes then go to a new log file.
+ *
+ * Files in the directory:
+ * <pre>
+ * snapshot-NNNNNNNNNN.bin  magic, last account_id, last message_id, records, end marker, CRC32 of all of it
+ * wal-NNNNNNNNNN.log       frames: int length, records, int CRC32 of the records
+ * </pre>
+ */
+public class MemoryJournal implements AutoCloseable {
+    private static final int SNAPSHOT_MAGIC = 0x534d4a31;
+    private static final byte END = 0;
+    private static final byte ACCOUNT = 1;
+    private static final byte MESSAGE = 2;
+    private static final byte DELETE_MESSAGE = 3;
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final String LOG_PREFIX = "wal-";
+    private static final String LOG_SUFFIX = ".log";
+
+    private final Path directory;
+    private final boolean syncOnWrite;
+    private final long snapshotIntervalMillis;
+    // Records logged since the last commit; only touched while holding this object's monitor
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final DataOutputStream pendingOut = new DataOutputStream(pending);
+    // Only one snapshot is written at a time
+    private final Object snapshotLock = new Object();
+
+    private InMemoryAccountStore accounts;
+    private InMemoryMessageStore messages;
+    private FileChannel log;
+    private long logSequence;
+    private boolean closed;
+    private ScheduledExecutorService snapshotter;
+
+    /**
+     * @param directory where snapshots and logs live
+     * @param syncOnWrite force each commit to disk before the write returns
+     * @param snapshotIntervalMillis how often to take a snapshot in the background, or 0 for never
+     */
+    public MemoryJournal(Path directory, boolean syncOnWrite, long snapshotIntervalMillis) {
+        this.directory = directory;
+        this.syncOnWrite = syncOnWrite;
+        this.snapshotIntervalMillis = snapshotIntervalMillis;
+    }
+
+    /**
+     * Restores the stores from the directory and starts logging. Must be called once, before the stores are
+     * written to.
+     *
+     * @return true if a snapshot or log was found, false if the directory was empty
+     * @throws IOException if the directory cannot be read or a new log cannot be created
+     */
+    public boolean open(InMemoryAccountStore accounts, InMemoryMessageStore messages) throws IOException {
+        this.accounts = accounts;
+        this.messages = messages;
+        Files.createDirectories(directory);
+
+        List<Long> snapshots = sequences(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        List<Long> logs = sequences(LOG_PREFIX, LOG_SUFFIX);
+        long start = 0;
+        // Newest first; a snapshot cut short or damaged is skipped in favour of the one before it
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Path file = file(SNAPSHOT_PREFIX, snapshots.get(i), SNAPSHOT_SUFFIX);
+            if (snapshotIsValid(file)) {
+                loadSnapshot(file);
+                start = snapshots.get(i);
+                break;
+            }
+        }
+        int replayed = 0;
+        for (long sequence : logs) {
+            if (sequence >= start) {
+                replayed += replay(file(LOG_PREFIX, sequence, LOG_SUFFIX));
+            }
+        }
+
+        long last = Math.max(start, logs.isEmpty() ? 0 : logs.get(logs.size() - 1));
+        synchronized (this) {
+            logSequence = last + 1;
+            log = openLog(logSequence);
+        }
+        if (snapshotIntervalMillis > 0) {
+            snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "memory-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // A long log tail is folded into a snapshot straight away, so the next restart does not replay it again
+            snapshotter.scheduleWithFixedDelay(this::snapshotQuietly, replayed > 0 ? 0 : snapshotIntervalMillis,
+                    snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        return !snapshots.isEmpty() || !logs.isEmpty();
+    }
+
+    /**
+     * Logs a new account. The caller holds this object's monitor and calls {@link #commit()} before applying it.
+     */
+    void logAccount(Account account) {
+        try {
+            writeAccount(pendingOut, account);
+        } catch (IOException e) {
+            // Writing to a byte array does no I/O
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Logs a message's new contents. The caller holds this object's monitor and calls {@link #commit()} before
+     * applying it.
+     */
+    void logMessage(Message message) {
+        try {
+            writeMessage(pendingOut, message);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Logs a message deletion. The caller holds this object's monitor and calls {@link #commit()} before applying
+     * it.
+     */
+    void logDelete(int messageId) {
+        try {
+            pendingOut.writeByte(DELETE_MESSAGE);
+            pendingOut.writeInt(messageId);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Appends everything logged since the last commit as one frame. The caller holds this object's monitor.
+     *
+     * @throws SQLException if the frame cannot be written; the change must then not be applied
+     */
+    void commit() throws SQLException {
+        byte[] records = pending.toByteArray();
+        pending.reset();
+        if (records.length == 0) {
+            return;
+        }
+        if (closed) {
+            throw new SQLException("The in-memory engine's journal is closed.");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(records);
+        ByteBuffer frame = ByteBuffer.allocate(records.length + 8);
+        frame.putInt(records.length).put(records).putInt((int) crc.getValue()).flip();
+        try {
+            while (frame.hasRemaining()) {
+                log.write(frame);
+            }
+            if (syncOnWrite) {
+                log.force(false);
+            }
+        } catch (IOException e) {
+            throw new SQLException("Could not write to the in-memory engine's journal.", e);
+        }
+    }
+
+    /**
+     * Writes a snapshot of both stores and deletes the snapshots and logs it replaces. Runs in the background on a
+     * timer, and may also be called directly.
+     *
+     * @throws IOException if the snapshot cannot be written; the previous snapshot and logs are then kept
+     */
+    public void snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            long sequence;
+            int lastAccountId;
+            int lastMessageId;
+            // Switch logs while no write is in progress, so every change is either before the switch, and so in
+            // the snapshot, or in the new log
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                FileChannel previous = log;
+                sequence = logSequence + 1;
+                log = openLog(sequence);
+                logSequence = sequence;
+                previous.force(false);
+                previous.close();
+                lastAccountId = accounts.getLastId();
+                lastMessageId = messages.getLastId();
+            }
+
+            Path temporary = directory.resolve(SNAPSHOT_PREFIX + "next.tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                DataOutputStream file = new DataOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+                CheckedOutputStream checked = new CheckedOutputStream(file, new CRC32());
+                DataOutputStream out = new DataOutputStream(checked);
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(lastAccountId);
+                out.writeInt(lastMessageId);
+                writeAccounts(out);
+                messages.streamAllMessages(message -> writeMessage(out, message));
+                out.writeByte(END);
+                out.flush();
+                // The checksum itself is written past the checked stream
+                file.writeInt((int) checked.getChecksum().getValue());
+                file.flush();
+                channel.force(true);
+            }
+            Files.move(temporary, file(SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+
+            for (long older : sequences(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+                if (older < sequence) {
+                    Files.deleteIfExists(file(SNAPSHOT_PREFIX, older, SNAPSHOT_SUFFIX));
+                }
+            }
+            for (long older : sequences(LOG_PREFIX, LOG_SUFFIX)) {
+                if (older < sequence) {
+                    Files.deleteIfExists(file(LOG_PREFIX, older, LOG_SUFFIX));
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops background snapshots and closes the log. Changes committed so far are replayed on the next start.
+     */
+    @Override
+    public void close() throws IOException {
+        if (snapshotter != null) {
+            snapshotter.shutdown();
+            try {
+                // Let a snapshot in progress finish rather than leave a temporary file behind
+                snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (closed || log == null) {
+                return;
+            }
+            closed = true;
+            log.force(false);
+            log.close();
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            // The log keeps growing until a later snapshot succeeds
+            e.printStackTrace();
+        }
+    }
+
+    private void writeAccounts(DataOutputStream out) throws IOException {
+        try {
+            accounts.forEachAccount(account -> {
+                try {
+                    writeAccount(out, account);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static boolean snapshotIsValid(Path file) throws IOException {
+        long size = Files.size(file);
+        if (size < 4) {
+            return false;
+        }
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            CRC32 crc = new CRC32();
+            byte[] buffer = new byte[1 << 16];
+            long remaining = size - 4;
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    return false;
+                }
+                crc.update(buffer, 0, read);
+                remaining -= read;
+            }
+            return (int) crc.getValue() == new DataInputStream(in).readInt();
+        }
+    }
+
+    private void loadSnapshot(Path file) throws IOException {
+        // Its checksum was verified first, so nothing half-read is ever applied
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException(file + " is not a snapshot.");
+            }
+            accounts.reserveIds(in.readInt());
+            messages.reserveIds(in.readInt());
+            while (apply(in)) {
+                // Records are applied as they are read
+            }
+        }
+    }
+
+    /**
+     * Applies every complete frame of a log file.
+     *
+     * @return the number of frames applied
+     */
+    private int replay(Path file) throws IOException {
+        int frames = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            while (true) {
+                int length;
+                byte[] records;
+                int checksum;
+                try {
+                    length = in.readInt();
+                    if (length <= 0) {
+                        break;
+                    }
+                    records = new byte[length];
+                    in.readFully(records);
+                    checksum = in.readInt();
+                } catch (EOFException e) {
+                    // The process stopped while this frame was being written; it was never acknowledged
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(records);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                DataInputStream frame = new DataInputStream(new ByteArrayInputStream(records));
+                while (frame.available() > 0 && apply(frame)) {
+                    // Records are applied as they are read
+                }
+                frames++;
+            }
+        }
+        return frames;
+    }
+
+    /**
+     * Reads one record and applies it to the stores without logging it again.
+     *
+     * @return false at the end marker
+     */
+    private boolean apply(DataInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case END:
+                return false;
+            case ACCOUNT:
+                accounts.load(new Account(in.readInt(), readString(in), readString(in)));
+                return true;
+            case MESSAGE:
+                int id = in.readInt();
+                int postedBy = in.readInt();
+                long epoch = in.readLong();
+                messages.load(new Message(id, postedBy, readString(in), epoch));
+                return true;
+            case DELETE_MESSAGE:
+                messages.unload(in.readInt());
+                return true;
+            default:
+                throw new IOException("Unknown journal record type " + type);
+        }
+    }
+
+    private static void writeAccount(DataOutput out, Account account) throws IOException {
+        out.writeByte(ACCOUNT);
+        out.writeInt(account.getAccount_id());
+        writeString(out, account.getUsername());
+        writeString(out, account.getPassword());
+    }
+
+    private static void writeMessage(DataOutput out, Message message) throws IOException {
+        out.writeByte(MESSAGE);
+        out.writeInt(message.getMessage_id());
+        out.writeInt(message.getPosted_by());
+        out.writeLong(message.getTime_posted_epoch());
+        writeString(out, message.getMessage_text());
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private FileChannel openLog(long sequence) throws IOException {
+        return FileChannel.open(file(LOG_PREFIX, sequence, LOG_SUFFIX), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path file(String prefix, long sequence, String suffix) {
+        return directory.resolve(String.format("%s%010d%s", prefix, sequence, suffix));
+    }
+
+    /**
+     * @return the sequence numbers of the files with this prefix and suffix, in increasing order
+     */
+    private List<Long> sequences(String prefix, String suffix) throws IOException {
+        List<Long> result = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    result.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        result.sort(null);
+        return result;
+    }
+}
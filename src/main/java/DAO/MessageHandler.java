@@ -0,0 +1,18 @@
+package DAO;
+
+import Model.Message;
+
+import java.io.IOException;
+
+/**
+ * Receives messages one at a time as they are read from the database, so large results can be written out
+ * without first being collected into a list.
+ */
+@FunctionalInterface
+public interface MessageHandler {
+    /**
+     * @param message The message just read. Handlers must not keep a reference to it after returning.
+     * @throws IOException if the handler fails to write the message out; this stops the scan.
+     */
+    void handle(Message message) throws IOException;
+}
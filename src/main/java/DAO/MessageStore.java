@@ -0,0 +1,82 @@
+package DAO;
+
+import Model.Message;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Storage for messages. {@link MessageDAO} keeps them in the database; {@link InMemoryMessageStore} keeps them in
+ * process memory. Every method may throw SQLException so callers handle both the same way.
+ */
+public interface MessageStore {
+    /**
+     * @param message The message to create, without a message_id.
+     * @return The message with its generated message_id set.
+     */
+    Message createMessage(Message message) throws SQLException;
+
+    /**
+     * Creates several messages at once and sets each generated message_id. Either all are created or none are.
+     */
+    void createMessages(List<Message> messages) throws SQLException;
+
+    /**
+     * @return Every message, in message_id order.
+     */
+    List<Message> getAllMessages() throws SQLException;
+
+    /**
+     * @return Up to limit messages with a message_id greater than afterMessageId, in message_id order.
+     */
+    List<Message> getMessagesAfter(int afterMessageId, int limit) throws SQLException;
+
+    /**
+     * Passes every message to the handler in message_id order. The handler may be given the same Message object
+     * each time, so it must copy anything it keeps.
+     */
+    void streamAllMessages(MessageHandler handler) throws SQLException, IOException;
+
+    /**
+     * Passes the messages selected by a timeline query to the handler, newest first, with the same object reuse as
+     * streamAllMessages.
+     */
+    void streamMessagesByUserId(TimelineQuery query, MessageHandler handler) throws SQLException, IOException;
+
+    /**
+     * Passes every message with after < time_posted_epoch < before to the handler in message_id order, with the
+     * same object reuse as streamAllMessages. A null bound leaves that side of the range open.
+     */
+    void streamMessagesPostedBetween(Long after, Long before, MessageHandler handler)
+            throws SQLException, IOException;
+
+    /**
+     * @return The message, or null if none has this message_id.
+     */
+    Message getMessageById(int messageId) throws SQLException;
+
+    /**
+     * @return The messages that exist among messageIds, newest (highest message_id) first.
+     */
+    List<Message> getMessagesByIds(int[] messageIds) throws SQLException;
+
+    /**
+     * Deletes a message atomically.
+     *
+     * @return The message as it was before deletion, or null if it did not exist.
+     */
+    Message deleteMessage(int messageId) throws SQLException;
+
+    /**
+     * Replaces a message's text atomically.
+     *
+     * @return The full updated message, or null if it does not exist.
+     */
+    Message updateMessageText(int messageId, String messageText) throws SQLException;
+
+    /**
+     * @return The messages selected by a timeline query, newest first.
+     */
+    List<Message> getMessagesByUserId(TimelineQuery query) throws SQLException;
+}
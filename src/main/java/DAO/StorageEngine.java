@@ -0,0 +1,160 @@
+package DAO;
+
+import Util.AppConfig;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+
+/**
+ * A matching pair of account and message stores, chosen with -Dstorage.engine at startup:
+ * <ul>
+ *     <li>{@code h2} (default) - AccountDAO and MessageDAO, backed by the database</li>
+ *     <li>{@code memory} - InMemoryAccountStore and InMemoryMessageStore, which never touch SQL while serving
+ *     requests. They start as a copy of the database (skip this with -Dstorage.memory.seedFromDatabase=false) and
+ *     nothing is written back. Data lives only as long as the process, unless -Dstorage.memory.dir names a
+ *     directory for a {@link MemoryJournal}: then every change is logged there, and a restart loads the latest
+ *     snapshot and replays the log instead of copying the database again.</li>
+ *     <li>{@code log} - AccountDAO for accounts and LogMessageStore for messages, an append-only log of
+ *     memory-mapped files under -Dstorage.log.dir. An empty log starts as a copy of the Message table (skip this with
+ *     -Dstorage.log.seedFromDatabase=false); after that messages live only in the log.</li>
+ * </ul>
+ */
+public final class StorageEngine implements AutoCloseable {
+    private final String name;
+    private final AccountStore accountStore;
+    private final MessageStore messageStore;
+    // Files held open by the stores, or null
+    private final AutoCloseable resource;
+
+    private StorageEngine(String name, AccountStore accountStore, MessageStore messageStore, AutoCloseable resource) {
+        this.name = name;
+        this.accountStore = accountStore;
+        this.messageStore = messageStore;
+        this.resource = resource;
+    }
+
+    /**
+     * @return the engine named by the storage.engine property
+     * @throws IllegalArgumentException if the name is not a known engine
+     */
+    public static StorageEngine fromConfig() {
+        String engine = AppConfig.getString("storage.engine", "h2");
+        switch (engine) {
+            case "h2":
+                return h2();
+            case "memory":
+                String journal = AppConfig.getString("storage.memory.dir", "");
+                return memory(AppConfig.getBoolean("storage.memory.seedFromDatabase", true),
+                        journal.isEmpty() ? null : Paths.get(journal));
+            case "log":
+                return log(Paths.get(AppConfig.getString("storage.log.dir", "message-log")),
+                        AppConfig.getBoolean("storage.log.truncateOnOpen", false),
+                        AppConfig.getBoolean("storage.log.seedFromDatabase", true));
+            default:
+                throw new IllegalArgumentException("Unknown storage.engine: " + engine);
+        }
+    }
+
+    public static StorageEngine h2() {
+        return new StorageEngine("h2", new AccountDAO(), new MessageDAO(), null);
+    }
+
+    /**
+     * @param seedFromDatabase copy every account and message from the database first
+     */
+    public static StorageEngine memory(boolean seedFromDatabase) {
+        return memory(seedFromDatabase, null);
+    }
+
+    /**
+     * @param seedFromDatabase copy every account and message from the database if there is nothing to restore
+     * @param journalDirectory where snapshots and the write-ahead log are kept, or null to keep nothing
+     */
+    public static StorageEngine memory(boolean seedFromDatabase, Path journalDirectory) {
+        MemoryJournal journal = journalDirectory == null ? null : new MemoryJournal(journalDirectory,
+                AppConfig.getBoolean("storage.memory.syncOnWrite", false),
+                AppConfig.getLong("storage.memory.snapshotIntervalMillis", 300_000));
+        InMemoryAccountStore accounts = new InMemoryAccountStore(journal);
+        InMemoryMessageStore messages = new InMemoryMessageStore(accounts, journal);
+        boolean restored = false;
+        if (journal != null) {
+            try {
+                restored = journal.open(accounts, messages);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not restore the in-memory engine from " + journalDirectory, e);
+            }
+        }
+        if (seedFromDatabase && !restored) {
+            try {
+                new AccountDAO().forEachAccount(accounts::load);
+                new MessageDAO().streamAllMessages(messages::load);
+                // Loaded rows bypass the log, so snapshot them now or a restart would lose them
+                if (journal != null) {
+                    journal.snapshot();
+                }
+            } catch (SQLException | IOException e) {
+                throw new IllegalStateException("Could not copy the database into the in-memory engine.", e);
+            }
+        }
+        return new StorageEngine("memory", accounts, messages, journal);
+    }
+
+    /**
+     * @param directory where the message log's segment files live
+     * @param truncate delete any existing segments first
+     * @param seedFromDatabase copy every message from the database if the log is empty
+     */
+    public static StorageEngine log(Path directory, boolean truncate, boolean seedFromDatabase) {
+        LogMessageStore messages;
+        try {
+            if (truncate) {
+                LogMessageStore.truncate(directory);
+            }
+            messages = new LogMessageStore(directory,
+                    AppConfig.getInt("storage.log.segmentBytes", 64 * 1024 * 1024),
+                    AppConfig.getBoolean("storage.log.syncOnWrite", false),
+                    Double.parseDouble(AppConfig.getString("storage.log.compactionThreshold", "0.5")),
+                    AppConfig.getLong("storage.log.compactionIntervalMillis", 30_000));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not open the message log in " + directory, e);
+        }
+        if (seedFromDatabase && messages.size() == 0) {
+            try {
+                new MessageDAO().streamAllMessages(message -> {
+                    try {
+                        messages.load(message);
+                    } catch (SQLException e) {
+                        throw new IOException(e);
+                    }
+                });
+            } catch (SQLException | IOException e) {
+                throw new IllegalStateException("Could not copy the database into the message log.", e);
+            }
+        }
+        return new StorageEngine("log", new AccountDAO(), messages, messages);
+    }
+
+    /**
+     * Releases any files held by the stores; the database connection pool is shared and stays open.
+     */
+    @Override
+    public void close() throws Exception {
+        if (resource != null) {
+            resource.close();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public AccountStore getAccountStore() {
+        return accountStore;
+    }
+
+    public MessageStore getMessageStore() {
+        return messageStore;
+    }
+}
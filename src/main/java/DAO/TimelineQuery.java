@@ -0,0 +1,66 @@
+package DAO;
+
+/**
+ * Describes which of an account's messages to read: all of them, or a window bounded by time_posted_epoch and/or a
+ * maximum count. Results are always ordered newest first, by time_posted_epoch and then message_id.
+ */
+public class TimelineQuery {
+    private final int accountId;
+    private final Long before;
+    private final Long after;
+    private final Integer limit;
+
+    /**
+     * @param accountId The account whose messages are read.
+     * @param before Only messages posted strictly before this epoch time, or null for no upper bound.
+     * @param after Only messages posted strictly after this epoch time, or null for no lower bound.
+     * @param limit The maximum number of messages, or null for no limit.
+     */
+    public TimelineQuery(int accountId, Long before, Long after, Integer limit) {
+        this.accountId = accountId;
+        this.before = before;
+        this.after = after;
+        this.limit = limit;
+    }
+
+    /**
+     * @param accountId The account whose messages are read.
+     * @return A query for the account's whole history.
+     */
+    public static TimelineQuery all(int accountId) {
+        return new TimelineQuery(accountId, null, null, null);
+    }
+
+    public int getAccountId() {
+        return accountId;
+    }
+
+    public Long getBefore() {
+        return before;
+    }
+
+    public Long getAfter() {
+        return after;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return true if the query reads the account's whole history
+     */
+    public boolean isUnbounded() {
+        return before == null && after == null && limit == null;
+    }
+
+    @Override
+    public String toString() {
+        return "TimelineQuery{" +
+                "accountId=" + accountId +
+                ", before=" + before +
+                ", after=" + after +
+                ", limit=" + limit +
+                '}';
+    }
+}
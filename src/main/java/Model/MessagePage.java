@@ -0,0 +1,82 @@
+package Model;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * One page of messages returned by the paginated GET /messages endpoint. next_cursor is an opaque token that can be
+ * passed back as the cursor query parameter to fetch the following page; it is null on the last page.
+ */
+public class MessagePage {
+    /**
+     * The messages on this page, in ascending message_id order.
+     */
+    public List<Message> messages;
+    /**
+     * Opaque cursor for the next page, or null if this is the last page.
+     */
+    public String next_cursor;
+    /**
+     * Relative link to the next page, or null if this is the last page.
+     */
+    public String next;
+
+    /**
+     * A default, no-args constructor is needed for Jackson ObjectMapper to work.
+     */
+    public MessagePage() {
+    }
+
+    public MessagePage(List<Message> messages, String next_cursor, String next) {
+        this.messages = messages;
+        this.next_cursor = next_cursor;
+        this.next = next;
+    }
+
+    public List<Message> getMessages() {
+        return messages;
+    }
+
+    public void setMessages(List<Message> messages) {
+        this.messages = messages;
+    }
+
+    public String getNext_cursor() {
+        return next_cursor;
+    }
+
+    public void setNext_cursor(String next_cursor) {
+        this.next_cursor = next_cursor;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MessagePage that = (MessagePage) o;
+        return Objects.equals(messages, that.messages) && Objects.equals(next_cursor, that.next_cursor)
+                && Objects.equals(next, that.next);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(messages, next_cursor, next);
+    }
+
+    @Override
+    public String toString() {
+        return "MessagePage{" +
+                "messages=" + messages +
+                ", next_cursor='" + next_cursor + '\'' +
+                ", next='" + next + '\'' +
+                '}';
+    }
+}
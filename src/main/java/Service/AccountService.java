@@ -1,19 +1,38 @@
 package Service;
 
 import DAO.AccountDAO;
+import DAO.AccountStore;
 import Model.Account;
+import Util.AppConfig;
+import Util.ConcurrentIdSet;
+import Util.LoadStats;
+import Util.SessionStore;
+import Util.SingleFlight;
 import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class AccountService {
-    private final AccountDAO accountDAO;
+    private final AccountStore accountStore;
+    // Every account_id known to exist, loaded lazily on the first exists() call
+    private final ConcurrentIdSet knownAccountIds = new ConcurrentIdSet(1024);
+    private volatile boolean accountIdsLoaded;
+    // Registrations that may have created an account not yet in knownAccountIds
+    private final AtomicInteger registrationsInFlight = new AtomicInteger();
+    // When true, other processes also create accounts, so the set is never complete and misses go to the store
+    private final boolean externalAccountWriters = AppConfig.getBoolean("accounts.externalWriters", false);
+    // Concurrent identical account reads share one query: logins by username, exists() misses by account_id
+    private final SingleFlight<String, Account> accountsByUsername = new SingleFlight<>();
+    private final SingleFlight<Integer, Account> accountsById = new SingleFlight<>();
+    // Session tokens issued by login, checked in memory on later requests
+    private final SessionStore sessions = new SessionStore(AppConfig.getLong("auth.sessionTtlMillis", 3_600_000L));
 
-    public AccountService(AccountDAO accountDAO) {
-        this.accountDAO = accountDAO;
+    public AccountService(AccountStore accountStore) {
+        this.accountStore = accountStore;
     }
 
     // Parameterless constructor
     public AccountService() {
-        this.accountDAO = new AccountDAO(); // Assumes AccountDAO has a no-arg constructor
+        this.accountStore = new AccountDAO(); // Assumes AccountDAO has a no-arg constructor
     }
     
     /**
@@ -34,13 +53,24 @@ public class AccountService {
         }
         
         // Check if the username is already taken
-        Account existingAccount = accountDAO.getAccountByUsername(account.getUsername());
+        Account existingAccount = accountStore.getAccountByUsername(account.getUsername());
         if (existingAccount != null) {
             throw new IllegalArgumentException("Username is already taken.");
         }
         
         // Create the account
-        return accountDAO.createAccount(account);
+        Account created;
+        registrationsInFlight.incrementAndGet();
+        try {
+            created = accountStore.createAccount(account);
+            knownAccountIds.add(created.getAccount_id());
+        } finally {
+            registrationsInFlight.decrementAndGet();
+        }
+        // Reads that found no such account may still be running
+        accountsByUsername.forget(created.getUsername());
+        accountsById.forget(created.getAccount_id());
+        return created;
     }
 
     /**
@@ -52,19 +82,80 @@ public class AccountService {
      * @throws SQLException If a database access error occurs.
      */
     public Account login(String username, String password) throws SQLException {
-        Account account = accountDAO.getAccountByUsername(username);
+        if (username == null) {
+            return null;
+        }
+        Account account = accountsByUsername.runSql(username,
+                () -> accountStore.getAccountByUsername(username));
         
         if (account != null && account.getPassword().equals(password)) {
-            return account;
+            // Callers that shared the read each get their own copy
+            return new Account(account.getAccount_id(), account.getUsername(), account.getPassword());
         }
         
         return null;
     }
 
+    /**
+     * Starts a session for an account that has just logged in.
+     *
+     * @param account The authenticated account.
+     * @return An opaque token that identifies the session on later requests.
+     */
+    public String startSession(Account account) {
+        return sessions.create(account.getAccount_id());
+    }
+
+    /**
+     * Resolves a session token without touching the database.
+     *
+     * @param token A token from startSession, or null.
+     * @return The session's account_id, or SessionStore.NO_SESSION if the token is unknown or expired.
+     */
+    public int getSessionAccountId(String token) {
+        return sessions.getAccountId(token);
+    }
+
+    /**
+     * @return the number of session tokens held in memory
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Checks whether an account exists, answering from the in-memory ID set whenever possible.
+     *
+     * Accounts are never deleted, so an ID in the set is known to exist without a query. The set is loaded whole at
+     * startup and every registration made through this service adds to it, so an ID missing from it is rejected
+     * from memory too. Only while a registration is between creating its account and adding the ID, or when
+     * accounts.externalWriters says other processes create accounts, might the set be incomplete; a miss is then
+     * checked against the store, and concurrent checks for the same ID share one query.
+     *
+     * @param userId The account_id to check.
+     * @return true if the account exists.
+     */
     public boolean exists(int userId) {
+        if (userId <= 0) {
+            return false;
+        }
         try {
-            // Attempt to retrieve the user by ID from the database using AccountDAO
-            return accountDAO.getAccountById(userId) != null;
+            loadAccountIds();
+            // Read before the lookup: a registration that finished before this is already in the set, and one that
+            // starts after it created an account after this check began
+            boolean setComplete = !externalAccountWriters && registrationsInFlight.get() == 0;
+            if (knownAccountIds.contains(userId)) {
+                return true;
+            }
+            if (setComplete) {
+                return false;
+            }
+            boolean found = accountsById.runSql(userId,
+                    () -> accountStore.getAccountById(userId)) != null;
+            if (found) {
+                knownAccountIds.add(userId);
+            }
+            return found;
         } catch (SQLException e) {
             // Log the exception
             e.printStackTrace();
@@ -72,6 +163,49 @@ public class AccountService {
             return false;
         }
     }
-    
-    
+
+    /**
+     * @return how login reads were loaded: run, or shared with a concurrent login for the same username
+     */
+    public LoadStats getLoginLoadStats() {
+        return accountsByUsername.getStats();
+    }
+
+    /**
+     * @return how exists() database checks were loaded: run, or shared with a concurrent check for the same ID
+     */
+    public LoadStats getAccountByIdLoadStats() {
+        return accountsById.getStats();
+    }
+
+    /**
+     * Loads every account_id into memory ahead of the first exists() call.
+     */
+    public void warmUp() {
+        try {
+            loadAccountIds();
+        } catch (SQLException e) {
+            // exists() retries the load on its next call
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return the number of account IDs held in memory
+     */
+    public int getKnownAccountCount() {
+        return knownAccountIds.size();
+    }
+
+    private void loadAccountIds() throws SQLException {
+        if (accountIdsLoaded) {
+            return;
+        }
+        synchronized (knownAccountIds) {
+            if (!accountIdsLoaded) {
+                accountStore.forEachAccountId(knownAccountIds::add);
+                accountIdsLoaded = true;
+            }
+        }
+    }
 }
@@ -1,21 +1,80 @@
 package Service;
 
 import DAO.MessageDAO;
+import DAO.MessageHandler;
+import DAO.MessageStore;
+import DAO.TimelineQuery;
 import Model.Message;
+import Model.MessagePage;
+import Util.AppConfig;
+import Util.BoundedCache;
+import Util.CacheStats;
+import Util.ConcurrentIdSet;
+import Util.GenerationCache;
+import Util.InvertedIndex;
+import Util.JsonCodec;
+import Util.LoadStats;
+import Util.SingleFlight;
+import Util.VersionTable;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class MessageService {
-    private final MessageDAO messageDAO;
+    /**
+     * The largest page size accepted by getMessagesPage.
+     */
+    public static final int MAX_PAGE_SIZE = 1000;
+    private static final String CURSOR_PREFIX = "m:";
+    private static final int INDEX_LOCK_STRIPES = 64;
+
+    private final MessageStore messageStore;
+    // Read-through cache in front of messageStore.getMessageById, keyed by message_id
+    private final BoundedCache<Integer, Message> messageCache = new BoundedCache<>(
+            AppConfig.getInt("cache.messages.maxSize", 10000),
+            AppConfig.getLong("cache.messages.ttlMillis", 0));
+    // Each account's whole timeline as ready-to-send JSON, bounded by total bytes; null when
+    // cache.timelines.maxBytes is 0. Dropped for an account whenever one of its messages changes.
+    private final BoundedCache<Integer, byte[]> timelineCache = timelineCache(
+            AppConfig.getLong("cache.timelines.maxBytes", 32L << 20));
+    // The JSON array GET /messages sends, rebuilt at most once per write; its generation advances after every
+    // create, update and delete. Null when cache.allMessages.maxBytes is 0.
+    private final long allMessagesMaxBytes = AppConfig.getLong("cache.allMessages.maxBytes", 64L << 20);
+    private final GenerationCache<byte[]> allMessagesCache = allMessagesMaxBytes > 0 ? new GenerationCache<>() : null;
+    // Concurrent cache misses for the same message_id share one read
+    private final SingleFlight<Integer, Message> messageLoads = new SingleFlight<>();
+    // Full-text index over message_text, kept in step with every create, update and delete made through this service
+    private final InvertedIndex searchIndex = new InvertedIndex();
+    // Index changes for one message_id run one at a time, under the lock its ID hashes to, so writes to the same
+    // message cannot reach the index in a different order than they reached the store
+    private final Object[] indexLocks = indexLocks();
+    // Every message_id deleted through this service. IDs are never reused, so an index add that arrives after the
+    // delete is dropped instead of bringing the message back into search results.
+    private final ConcurrentIdSet deletedIds = new ConcurrentIdSet(AppConfig.getInt("etag.expectedMaxId", 1 << 16));
+    // Bumped after every create, update and delete made through this service, by message_id and by posted_by, so
+    // conditional reads can be answered from memory. Versions start again at 0 in every process, so ETags also
+    // carry a per-process prefix that keeps one issued before a restart from matching.
+    private final VersionTable messageVersions = new VersionTable(AppConfig.getInt("etag.expectedMaxId", 1 << 16));
+    private final VersionTable timelineVersions = new VersionTable(AppConfig.getInt("etag.expectedMaxId", 1 << 16));
+    // Counts timelineCache clears, which go stale without bumping any account's timeline version
+    private final AtomicLong timelineClears = new AtomicLong();
+    private final String etagPrefix = Long.toHexString(ThreadLocalRandom.current().nextLong());
 
     // Parameterless constructor
     public MessageService() {
-        this.messageDAO = new MessageDAO(); // Assumes MessageDAO has a no-arg constructor
+        this.messageStore = new MessageDAO(); // Assumes MessageDAO has a no-arg constructor
     }
 
 
-    public MessageService(MessageDAO messageDAO) {
-        this.messageDAO = messageDAO;
+    public MessageService(MessageStore messageStore) {
+        this.messageStore = messageStore;
     }
 
     public Message postMessage(Message message) throws Exception {
@@ -28,38 +87,561 @@ public class MessageService {
         }
         // Assuming posted_by is already validated as an existing user ID elsewhere
         // Insert the message into the database
-        return messageDAO.createMessage(message);
+        Message created = messageStore.createMessage(message);
+        indexCreated(created);
+        afterCreate(created);
+        return created;
+    }
+
+    /**
+     * Inserts many messages together, in one transaction when the store is the database.
+     *
+     * @param messages Messages whose posted_by has already been checked. Each gets its message_id set.
+     * @throws IllegalArgumentException if any text is blank or longer than 255 characters; nothing is inserted.
+     * @throws SQLException if the batch cannot be inserted; nothing is inserted.
+     */
+    public void postMessages(List<Message> messages) throws SQLException {
+        for (Message message : messages) {
+            if (message.getMessage_text() == null || message.getMessage_text().trim().isEmpty()) {
+                throw new IllegalArgumentException("Message text cannot be empty.");
+            }
+            if (message.getMessage_text().length() > 255) {
+                throw new IllegalArgumentException("Message text cannot exceed 255 characters.");
+            }
+        }
+        messageStore.createMessages(messages);
+        for (Message message : messages) {
+            indexCreated(message);
+            afterCreate(message);
+        }
     }
 
     public List<Message> getAllMessages() throws SQLException {
-        return messageDAO.getAllMessages();
+        return messageStore.getAllMessages();
+    }
+
+    public void streamAllMessages(MessageHandler handler) throws SQLException, IOException {
+        messageStore.streamAllMessages(handler);
+    }
+
+    /**
+     * @return true if getAllMessagesJson serves the full listing from memory
+     */
+    public boolean hasAllMessagesCache() {
+        return allMessagesCache != null;
+    }
+
+    /**
+     * Returns every message, in message_id order, as the UTF-8 JSON array GET /messages sends. The array is built
+     * once per write: concurrent callers after a write share one query and one serialization, and later callers get
+     * the same bytes until the next write.
+     *
+     * @return The JSON bytes, shared between callers, so they must not be modified; or null if the listing is larger
+     * than cache.allMessages.maxBytes and should be streamed instead.
+     * @throws SQLException if a database access error occurs.
+     */
+    public byte[] getAllMessagesJson() throws SQLException {
+        try {
+            return allMessagesCache.get(this::buildAllMessagesJson);
+        } catch (SQLException | RuntimeException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            // Waiting on another caller's rebuild
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the message listing.", e);
+        } catch (Exception e) {
+            throw new SQLException("Could not build the message listing.", e);
+        }
+    }
+
+    /**
+     * @return how GET /messages listings were answered, or null if the cache is disabled
+     */
+    public LoadStats getAllMessagesCacheStats() {
+        return allMessagesCache == null ? null : allMessagesCache.getStats();
     }
 
+    private byte[] buildAllMessagesJson() throws SQLException {
+        CappedBuffer out = new CappedBuffer(allMessagesMaxBytes);
+        try (JsonGenerator generator = JsonCodec.FACTORY.createGenerator(out)) {
+            generator.writeStartArray();
+            messageStore.streamAllMessages(message -> JsonCodec.writeMessage(generator, message));
+            generator.writeEndArray();
+        } catch (CappedBuffer.FullException e) {
+            return null;
+        } catch (IOException e) {
+            // Writing to a byte array does no other I/O
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Retrieves one page of messages in message_id order using a keyset query.
+     *
+     * @param cursor The next_cursor of the previous page, or null for the first page.
+     * @param limit The page size, between 1 and MAX_PAGE_SIZE.
+     * @return The page, whose next_cursor is null when no messages follow it.
+     * @throws IllegalArgumentException if the cursor is malformed or the limit is out of range.
+     * @throws SQLException if a database access error occurs.
+     */
+    public MessagePage getMessagesPage(String cursor, int limit) throws SQLException {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        int afterMessageId = cursor == null ? 0 : decodeCursor(cursor);
+        // Fetch one extra row to learn whether another page follows without a separate count query.
+        List<Message> messages = messageStore.getMessagesAfter(afterMessageId, limit + 1);
+        String nextCursor = null;
+        if (messages.size() > limit) {
+            messages = new ArrayList<>(messages.subList(0, limit));
+            nextCursor = encodeCursor(messages.get(limit - 1).getMessage_id());
+        }
+        String next = nextCursor == null ? null : "/messages?limit=" + limit + "&cursor=" + nextCursor;
+        return new MessagePage(messages, nextCursor, next);
+    }
+
+    private static String encodeCursor(int lastMessageId) {
+        byte[] raw = (CURSOR_PREFIX + lastMessageId).getBytes(StandardCharsets.US_ASCII);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    private static int decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            if (!raw.startsWith(CURSOR_PREFIX)) {
+                throw new IllegalArgumentException("Invalid cursor.");
+            }
+            int lastMessageId = Integer.parseInt(raw.substring(CURSOR_PREFIX.length()));
+            if (lastMessageId < 0) {
+                throw new IllegalArgumentException("Invalid cursor.");
+            }
+            return lastMessageId;
+        } catch (IllegalArgumentException e) {
+            // Covers both bad Base64 and NumberFormatException, which is an IllegalArgumentException.
+            throw new IllegalArgumentException("Invalid cursor.", e);
+        }
+    }
+
+    /**
+     * Retrieves a message, serving it from the in-process cache when possible.
+     *
+     * @param messageId The message_id to look up.
+     * @return A copy of the message, or null if it does not exist.
+     * @throws SQLException if a database access error occurs.
+     */
     public Message getMessageById(int messageId) throws SQLException {
-        return messageDAO.getMessageById(messageId);
+        Message cached = messageCache.get(messageId);
+        if (cached != null) {
+            return copyOf(cached);
+        }
+        Message message = messageLoads.runSql(messageId, () -> {
+            long stamp = messageCache.invalidationStamp();
+            Message loaded = messageStore.getMessageById(messageId);
+            if (loaded != null) {
+                messageCache.putIfNotInvalidated(messageId, copyOf(loaded), stamp);
+            }
+            return loaded;
+        });
+        // Every caller that shared the read gets its own copy
+        return message == null ? null : copyOf(message);
     }
 
-    public boolean deleteMessage(int messageId) throws SQLException {
-        return messageDAO.deleteMessage(messageId);
+    /**
+     * @return how getMessageById cache misses were loaded: run, or shared with a concurrent identical read
+     */
+    public LoadStats getMessageLoadStats() {
+        return messageLoads.getStats();
     }
 
-    public Message updateMessageText(int messageId, String newText) throws Exception {
+    /**
+     * @return hit, miss and eviction counts for the getMessageById cache
+     */
+    public CacheStats getMessageCacheStats() {
+        return messageCache.getStats();
+    }
+
+    /**
+     * Returns an ETag for GET /messages/{message_id} from memory. Read it before reading the message: a change that
+     * lands in between then leaves the ETag older than the body, which costs a later full response but never a
+     * wrong 304.
+     *
+     * @param messageId The message_id, which need not exist.
+     * @return A quoted entity tag that changes whenever the message is created, updated or deleted through this
+     * service.
+     */
+    public String getMessageEtag(int messageId) {
+        return "\"m" + etagPrefix + "-" + messageVersions.get(messageId) + "\"";
+    }
+
+    /**
+     * Returns an ETag for GET /accounts/{account_id}/messages from memory, with the same ordering rule as
+     * getMessageEtag.
+     *
+     * @param accountId The account_id, which need not exist.
+     * @return A quoted entity tag that changes whenever a message posted by the account is created, updated or
+     * deleted through this service.
+     */
+    public String getTimelineEtag(int accountId) {
+        return "\"t" + etagPrefix + "-" + timelineVersions.get(accountId) + "\"";
+    }
+
+    /**
+     * Deletes a message in one atomic statement.
+     *
+     * @param messageId The message_id to delete.
+     * @return The deleted message, or null if it did not exist.
+     * @throws SQLException if a database access error occurs.
+     */
+    public Message deleteMessage(int messageId) throws SQLException {
+        try {
+            Message deleted = messageStore.deleteMessage(messageId);
+            if (deleted != null) {
+                unindexDeleted(messageId);
+                messageChanged(messageId);
+                timelineChanged(deleted.getPosted_by());
+                advanceAllMessages();
+            } else {
+                // Not there to change, but a copy cached before another writer removed it may be
+                messageCache.invalidate(messageId);
+            }
+            return deleted;
+        } catch (SQLException | RuntimeException e) {
+            // The delete may still have happened, and without the row there is no telling whose timeline it touched
+            messageChanged(messageId);
+            clearTimelines();
+            advanceAllMessages();
+            throw e;
+        }
+    }
+
+    /**
+     * Replaces a message's text in one atomic statement.
+     *
+     * @param messageId The message_id to update.
+     * @param newText The new message_text.
+     * @return The full updated message, or null if it does not exist.
+     * @throws IllegalArgumentException if the text is blank or longer than 255 characters.
+     * @throws SQLException if a database access error occurs.
+     */
+    public Message updateMessageText(int messageId, String newText) throws SQLException {
         if (newText == null || newText.trim().isEmpty()) {
             throw new IllegalArgumentException("Message text cannot be empty.");
         }
         if (newText.length() > 255) {
             throw new IllegalArgumentException("Message text cannot exceed 255 characters.");
         }
-        Message existingMessage = getMessageById(messageId);
-        if (existingMessage == null) {
-            throw new SQLException("Message with ID " + messageId + " not found.");
+        try {
+            Message updated = messageStore.updateMessageText(messageId, newText);
+            if (updated != null) {
+                reindexUpdated(messageId);
+                messageChanged(messageId);
+                timelineChanged(updated.getPosted_by());
+                advanceAllMessages();
+            } else {
+                // Not there to change, but a copy cached before another writer removed it may be
+                messageCache.invalidate(messageId);
+            }
+            return updated;
+        } catch (SQLException | RuntimeException e) {
+            // The update may still have happened, and without the row there is no telling whose timeline it touched
+            messageChanged(messageId);
+            clearTimelines();
+            advanceAllMessages();
+            throw e;
+        }
+    }
+
+    /**
+     * Finds messages whose text matches a full-text query, using the in-memory index and one query for the rows.
+     *
+     * @param query Words to match, all of which must appear; "quoted words" must appear together and word* matches
+     *              any word with that prefix.
+     * @param limit The maximum number of messages, 1 to MAX_PAGE_SIZE.
+     * @return The matching messages, newest first.
+     * @throws IllegalArgumentException if the query has no words or the limit is out of range.
+     * @throws SQLException if a database access error occurs.
+     */
+    public List<Message> searchMessages(String query, int limit) throws SQLException {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        return messageStore.getMessagesByIds(searchIndex.search(query, limit));
+    }
+
+    /**
+     * Rebuilds the search index from every message in the database. Called on startup, before requests arrive.
+     *
+     * @throws SQLException if a database access error occurs.
+     */
+    public void rebuildSearchIndex() throws SQLException {
+        searchIndex.clear();
+        try {
+            messageStore.streamAllMessages(message ->
+                    searchIndex.add(message.getMessage_id(), message.getMessage_text()));
+        } catch (IOException e) {
+            // The handler does no I/O
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the number of messages in the search index
+     */
+    public int getSearchIndexSize() {
+        return searchIndex.size();
+    }
+
+    /**
+     * Retrieves an account's messages, newest first, optionally limited to a time window and a maximum count.
+     *
+     * @param query The account and optional time window and limit.
+     * @return The matching messages.
+     * @throws IllegalArgumentException if the limit is out of range or the window is empty.
+     * @throws SQLException if a database access error occurs.
+     */
+    public List<Message> getMessagesByUserId(TimelineQuery query) throws SQLException {
+        validateTimeline(query);
+        return messageStore.getMessagesByUserId(query);
+    }
+
+    public void streamMessagesByUserId(TimelineQuery query, MessageHandler handler) throws SQLException, IOException {
+        validateTimeline(query);
+        messageStore.streamMessagesByUserId(query, handler);
+    }
+
+    /**
+     * Streams the messages posted strictly between two epochs, in message_id order.
+     *
+     * @param after The lower bound, or null for none.
+     * @param before The upper bound, or null for none.
+     * @throws IllegalArgumentException if both bounds are given and leave no room between them.
+     */
+    public void streamMessagesPostedBetween(Long after, Long before, MessageHandler handler)
+            throws SQLException, IOException {
+        if (before != null && after != null && after >= before) {
+            throw new IllegalArgumentException("after must be earlier than before.");
+        }
+        messageStore.streamMessagesPostedBetween(after, before, handler);
+    }
+
+    /**
+     * @return true if getTimelineJson serves whole timelines from memory
+     */
+    public boolean hasTimelineCache() {
+        return timelineCache != null;
+    }
+
+    /**
+     * Returns an account's whole timeline, newest first, as the UTF-8 JSON array GET /accounts/{account_id}/messages
+     * sends. A cached copy costs one lookup; otherwise the timeline is read once, serialized and cached until one of
+     * the account's messages changes.
+     *
+     * @param accountId The account whose messages are read.
+     * @return The JSON bytes, shared with the cache, so callers must not modify them.
+     * @throws SQLException if a database access error occurs.
+     */
+    public byte[] getTimelineJson(int accountId) throws SQLException {
+        byte[] cached = timelineCache == null ? null : timelineCache.get(accountId);
+        if (cached != null) {
+            return cached;
+        }
+        // Only this account's writes, or a clear, make the load stale; writes to other accounts do not
+        long version = timelineVersions.get(accountId);
+        long clears = timelineClears.get();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        try (JsonGenerator generator = JsonCodec.FACTORY.createGenerator(out)) {
+            generator.writeStartArray();
+            messageStore.streamMessagesByUserId(TimelineQuery.all(accountId),
+                    message -> JsonCodec.writeMessage(generator, message));
+            generator.writeEndArray();
+        } catch (IOException e) {
+            // Writing to a byte array does no I/O
+            throw new IllegalStateException(e);
+        }
+        byte[] json = out.toByteArray();
+        if (timelineCache != null) {
+            timelineCache.putIf(accountId, json,
+                    () -> timelineVersions.get(accountId) == version && timelineClears.get() == clears);
+        }
+        return json;
+    }
+
+    /**
+     * @return hit, miss and eviction counts for the timeline cache, or null if it is disabled
+     */
+    public CacheStats getTimelineCacheStats() {
+        return timelineCache == null ? null : timelineCache.getStats();
+    }
+
+    /**
+     * @return the bytes of JSON held by the timeline cache, or 0 if it is disabled
+     */
+    public long getTimelineCacheBytes() {
+        return timelineCache == null ? 0 : timelineCache.weight();
+    }
+
+    /**
+     * Checks a timeline query's window without running it, so callers can reject it before starting a response.
+     *
+     * @throws IllegalArgumentException if the limit is out of range or the window is empty.
+     */
+    public static void validateTimeline(TimelineQuery query) {
+        if (query.getLimit() != null && (query.getLimit() < 1 || query.getLimit() > MAX_PAGE_SIZE)) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        if (query.getBefore() != null && query.getAfter() != null && query.getAfter() >= query.getBefore()) {
+            throw new IllegalArgumentException("after must be earlier than before.");
+        }
+    }
+
+    /**
+     * Drops the message's cached copy and detaches any read of it in flight, then gives it a new version. In that
+     * order, a reader that sees the new ETag can only get the new body: the cache's invalidation count keeps a fill
+     * that read the old row from storing it. A reader that sees the old ETag with the new body costs a later full
+     * response, never a wrong 304.
+     */
+    private void messageChanged(int messageId) {
+        messageCache.invalidate(messageId);
+        messageLoads.forget(messageId);
+        messageVersions.bump(messageId);
+    }
+
+    // Indexes a message just stored, unless a delete of it has already been applied to the index
+    private void indexCreated(Message created) {
+        int messageId = created.getMessage_id();
+        synchronized (indexLock(messageId)) {
+            if (!deletedIds.contains(messageId)) {
+                searchIndex.add(messageId, created.getMessage_text());
+            }
+        }
+    }
+
+    private void unindexDeleted(int messageId) {
+        synchronized (indexLock(messageId)) {
+            deletedIds.add(messageId);
+            searchIndex.remove(messageId);
+        }
+    }
+
+    /**
+     * Brings the index in line with the message's row after an update. The text is read back from the store under
+     * the message's index lock rather than taken from the update's result: of two updates racing, the one whose
+     * index change runs last may have lost in the store, and this way it still indexes the winner's text. A row
+     * that is gone by then is unindexed, as its delete would have done.
+     */
+    private void reindexUpdated(int messageId) throws SQLException {
+        synchronized (indexLock(messageId)) {
+            if (deletedIds.contains(messageId)) {
+                return;
+            }
+            Message current = messageStore.getMessageById(messageId);
+            if (current == null) {
+                deletedIds.add(messageId);
+                searchIndex.remove(messageId);
+            } else {
+                searchIndex.add(messageId, current.getMessage_text());
+            }
+        }
+    }
+
+    private Object indexLock(int messageId) {
+        return indexLocks[Math.floorMod(messageId, INDEX_LOCK_STRIPES)];
+    }
+
+    // Called once a new message is stored, so a conditional read never pairs its new version with an older body
+    private void afterCreate(Message created) {
+        // A read that found nothing under this ID may still be running
+        messageLoads.forget(created.getMessage_id());
+        messageVersions.bump(created.getMessage_id());
+        timelineChanged(created.getPosted_by());
+        advanceAllMessages();
+    }
+
+    /**
+     * Gives the account's timeline a new version on both sides of dropping its cached JSON. The first bump makes a
+     * fill that read the old version skip its store, and anything it stored before then is dropped; the second bump
+     * means the ETag that stays only becomes visible once the old JSON is gone. A reader that sees the first bump's
+     * ETag with the old JSON holds an ETag that is already out of date, which costs a full response, not a 304.
+     */
+    private void timelineChanged(int accountId) {
+        timelineVersions.bump(accountId);
+        if (timelineCache != null) {
+            timelineCache.invalidate(accountId);
+            timelineVersions.bump(accountId);
+        }
+    }
+
+    // For a write that failed without saying whose timeline it touched
+    private void clearTimelines() {
+        if (timelineCache != null) {
+            timelineClears.incrementAndGet();
+            timelineCache.clear();
+        }
+    }
+
+    private void advanceAllMessages() {
+        if (allMessagesCache != null) {
+            allMessagesCache.advance();
+        }
+    }
+
+    private static Object[] indexLocks() {
+        Object[] locks = new Object[INDEX_LOCK_STRIPES];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+
+    private static BoundedCache<Integer, byte[]> timelineCache(long maxBytes) {
+        return maxBytes > 0 ? new BoundedCache<>(maxBytes, 0, json -> json.length) : null;
+    }
+
+    /**
+     * A byte array stream that gives up once it holds more than a set number of bytes, so a listing too large to
+     * keep is abandoned as soon as that is known rather than after it has all been read.
+     */
+    private static final class CappedBuffer extends ByteArrayOutputStream {
+        private final long maxBytes;
+
+        private CappedBuffer(long maxBytes) {
+            super(8192);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            checkRoom(1);
+            super.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            checkRoom(len);
+            super.write(b, off, len);
+        }
+
+        private void checkRoom(int len) {
+            if (count + (long) len > maxBytes) {
+                throw new FullException();
+            }
+        }
+
+        /**
+         * Unchecked, since ByteArrayOutputStream's write methods declare no IOException.
+         */
+        private static final class FullException extends RuntimeException {
+            private FullException() {
+                super("Listing is larger than the cache allows.", null, false, false);
+            }
         }
-        existingMessage.setMessage_text(newText);
-        return messageDAO.updateMessage(existingMessage);
     }
 
-    public List<Message> getMessagesByUserId(int userId) throws SQLException {
-        return messageDAO.getMessagesByUserId(userId);
+    // Messages are mutable, so callers never share an instance with the cache
+    private static Message copyOf(Message message) {
+        return new Message(message.getMessage_id(), message.getPosted_by(), message.getMessage_text(),
+                message.getTime_posted_epoch());
     }
 
     // Additional methods as needed...
@@ -0,0 +1,59 @@
+package Util;
+
+/**
+ * Small helper for reading tunables from JVM system properties, e.g. {@code -Dpool.maxSize=20}.
+ * Every setting has a default so the application runs unchanged when nothing is configured.
+ */
+public final class AppConfig {
+
+    private AppConfig() {
+    }
+
+    /**
+     * @param key the system property name
+     * @param defaultValue the value used when the property is missing or blank
+     * @return the configured string value
+     */
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        return value.trim();
+    }
+
+    /**
+     * @param key the system property name
+     * @param defaultValue the value used when the property is missing or not a number
+     * @return the configured int value
+     */
+    public static int getInt(String key, int defaultValue) {
+        try {
+            return Integer.parseInt(getString(key, Integer.toString(defaultValue)));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @param key the system property name
+     * @param defaultValue the value used when the property is missing or not a number
+     * @return the configured long value
+     */
+    public static long getLong(String key, long defaultValue) {
+        try {
+            return Long.parseLong(getString(key, Long.toString(defaultValue)));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @param key the system property name
+     * @param defaultValue the value used when the property is missing
+     * @return the configured boolean value
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        return Boolean.parseBoolean(getString(key, Boolean.toString(defaultValue)));
+    }
+}
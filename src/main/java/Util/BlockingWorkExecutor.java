@@ -0,0 +1,135 @@
+package Util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs blocking work, such as JDBC calls, off the caller's thread with a hard cap on how much work may be waiting.
+ *
+ * Work runs on virtual threads when the JDK provides them and {@code preferVirtualThreads} is set, or on a fixed
+ * pool of platform threads otherwise. Either way at most {@code maxPending} tasks may be running or queued at once;
+ * further submissions are rejected immediately rather than queued, so callers can shed load instead of letting
+ * latency grow without bound.
+ */
+public class BlockingWorkExecutor {
+    /**
+     * A unit of blocking work that may throw.
+     */
+    @FunctionalInterface
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    private final ExecutorService executor;
+    private final Semaphore pending;
+    private final int maxPending;
+    private final boolean virtualThreads;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param name prefix for worker thread names
+     * @param threads the number of platform worker threads, ignored when virtual threads are used
+     * @param maxQueued how many tasks may wait beyond those already running
+     * @param preferVirtualThreads use one virtual thread per task if the running JDK supports it
+     */
+    public BlockingWorkExecutor(String name, int threads, int maxQueued, boolean preferVirtualThreads) {
+        ExecutorService virtual = preferVirtualThreads ? newVirtualThreadExecutor() : null;
+        this.virtualThreads = virtual != null;
+        if (virtual != null) {
+            this.executor = virtual;
+        } else {
+            AtomicInteger counter = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+                Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.maxPending = Math.max(1, threads) + Math.max(0, maxQueued);
+        this.pending = new Semaphore(maxPending);
+    }
+
+    /**
+     * Schedules a task.
+     *
+     * @param task the blocking work
+     * @return a future completed when the task finishes, exceptionally if it throws
+     * @throws RejectedExecutionException if the pending-task limit has been reached
+     */
+    public CompletableFuture<Void> submit(Task task) {
+        if (!pending.tryAcquire()) {
+            rejected.increment();
+            throw new RejectedExecutionException("Too many pending tasks (limit " + maxPending + ").");
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                inFlight.incrementAndGet();
+                try {
+                    task.run();
+                    future.complete(null);
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    inFlight.decrementAndGet();
+                    pending.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.release();
+            rejected.increment();
+            throw e;
+        }
+        return future;
+    }
+
+    /**
+     * @return the number of tasks running or waiting to run
+     */
+    public int getPending() {
+        return maxPending - pending.availablePermits();
+    }
+
+    /**
+     * @return the number of tasks currently running
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return the number of submissions rejected because the limit was reached
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return true if tasks run on virtual threads
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Stops accepting work and lets queued tasks finish.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    // Looked up reflectively so the project still compiles for Java 11
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package Util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * A bounded, thread-safe, in-process cache with least-recently-used eviction and an optional time-to-live.
+ *
+ * Keys are spread over independently locked segments, each an access-ordered LinkedHashMap, so concurrent callers
+ * only contend when their keys land in the same segment. Hits, misses and evictions are counted with LongAdders.
+ *
+ * By default every entry counts as 1 towards the bound. Given a weigher, the bound is instead a total weight, such
+ * as a number of bytes, and as many least recently used entries are evicted as it takes to get back under it.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class BoundedCache<K, V> {
+    private static final int SEGMENTS = 16;
+
+    private final Segment<K, V>[] segments;
+    private final long ttlNanos;
+    private final ToLongFunction<V> weigher;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * @param maxSize the maximum number of entries held across all segments
+     * @param ttlMillis how long an entry stays valid after it is written, or 0 to keep entries until evicted
+     */
+    public BoundedCache(int maxSize, long ttlMillis) {
+        this(maxSize, ttlMillis, value -> 1);
+    }
+
+    /**
+     * @param maxWeight the maximum total weight held across all segments
+     * @param ttlMillis how long an entry stays valid after it is written, or 0 to keep entries until evicted
+     * @param weigher gives each value's weight; a value heavier than one segment's share is never stored
+     */
+    @SuppressWarnings("unchecked")
+    public BoundedCache(long maxWeight, long ttlMillis, ToLongFunction<V> weigher) {
+        if (maxWeight < 1) {
+            throw new IllegalArgumentException("Cache size must be at least 1.");
+        }
+        this.ttlNanos = ttlMillis > 0 ? ttlMillis * 1_000_000L : 0;
+        this.weigher = weigher;
+        long perSegment = Math.max(1, (maxWeight + SEGMENTS - 1) / SEGMENTS);
+        segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment<>(perSegment, evictions);
+        }
+    }
+
+    /**
+     * @param key the key to look up
+     * @return the cached value, or null if it is absent or expired
+     */
+    public V get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            Entry<V> entry = segment.get(key);
+            if (entry != null && (ttlNanos == 0 || System.nanoTime() - entry.writtenAt < ttlNanos)) {
+                hits.increment();
+                return entry.value;
+            }
+            if (entry != null) {
+                segment.drop(key);
+                evictions.increment();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Stores a value, evicting the least recently used entry of its segment if the segment is full.
+     *
+     * @param key the key
+     * @param value the value, which must not be null
+     */
+    public void put(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.store(key, new Entry<>(value, weigher.applyAsLong(value), System.nanoTime()));
+        }
+    }
+
+    /**
+     * Returns a token to pass to {@link #putIfNotInvalidated}. Read it before loading a value from the source of truth.
+     *
+     * @return the current invalidation count
+     */
+    public long invalidationStamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * Stores a value loaded after {@link #invalidationStamp()} was read, unless an invalidation happened in the
+     * meantime. This stops a slow reader from caching a row that a concurrent writer has already changed.
+     *
+     * @param key the key
+     * @param value the freshly loaded value
+     * @param stamp the token read before the value was loaded
+     */
+    public void putIfNotInvalidated(K key, V value, long stamp) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            if (invalidations.get() == stamp) {
+                segment.store(key, new Entry<>(value, weigher.applyAsLong(value), System.nanoTime()));
+            }
+        }
+    }
+
+    /**
+     * Stores a value unless the check says it is no longer current. The check runs under the same lock as
+     * {@link #invalidate} for this key, so a writer that makes the check fail before invalidating the key, e.g. by
+     * bumping a per-key version, can never have its invalidation overtaken by a stale value.
+     *
+     * @param key the key
+     * @param value the freshly loaded value
+     * @param current tells whether the source of truth is unchanged since the value was loaded
+     */
+    public void putIf(K key, V value, BooleanSupplier current) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            if (current.getAsBoolean()) {
+                segment.store(key, new Entry<>(value, weigher.applyAsLong(value), System.nanoTime()));
+            }
+        }
+    }
+
+    /**
+     * Removes a key so the next read goes to the source of truth.
+     *
+     * @param key the key to drop
+     */
+    public void invalidate(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            invalidations.incrementAndGet();
+            segment.drop(key);
+        }
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                invalidations.incrementAndGet();
+                segment.dropAll();
+            }
+        }
+    }
+
+    /**
+     * @return the number of entries currently cached, including any that have expired but not yet been removed
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the total weight of the entries currently cached; equal to size() when there is no weigher
+     */
+    public long weight() {
+        long weight = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                weight += segment.weight;
+            }
+        }
+        return weight;
+    }
+
+    /**
+     * @return a snapshot of the hit, miss and eviction counters
+     */
+    public CacheStats getStats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), size());
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[hash & (SEGMENTS - 1)];
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long weight;
+        private final long writtenAt;
+
+        private Entry(V value, long weight, long writtenAt) {
+            this.value = value;
+            this.weight = weight;
+            this.writtenAt = writtenAt;
+        }
+    }
+
+    /**
+     * An access-ordered map that drops its eldest entries once their total weight grows past its capacity. Entries
+     * are only added and removed through store, drop and dropAll, which keep the weight up to date.
+     */
+    private static final class Segment<K, V> extends LinkedHashMap<K, Entry<V>> {
+        private final long capacity;
+        private final LongAdder evictions;
+        private long weight;
+
+        private Segment(long capacity, LongAdder evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        private void store(K key, Entry<V> entry) {
+            if (entry.weight > capacity) {
+                // Storing it would evict everything else and then itself
+                drop(key);
+                return;
+            }
+            Entry<V> previous = put(key, entry);
+            if (previous != null) {
+                weight -= previous.weight;
+            }
+            weight += entry.weight;
+            Iterator<Map.Entry<K, Entry<V>>> eldest = entrySet().iterator();
+            while (weight > capacity) {
+                weight -= eldest.next().getValue().weight;
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+
+        private void drop(K key) {
+            Entry<V> previous = remove(key);
+            if (previous != null) {
+                weight -= previous.weight;
+            }
+        }
+
+        private void dropAll() {
+            clear();
+            weight = 0;
+        }
+    }
+}
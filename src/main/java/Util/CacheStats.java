@@ -0,0 +1,64 @@
+package Util;
+
+/**
+ * An immutable snapshot of {@link BoundedCache} counters, taken by {@link BoundedCache#getStats()}.
+ */
+public class CacheStats {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int size;
+
+    public CacheStats(long hits, long misses, long evictions, int size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+    }
+
+    /**
+     * @return the number of lookups answered from the cache
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups that had to go to the source of truth
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of entries dropped because the cache was full or they expired
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of entries held when the snapshot was taken
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return hits divided by total lookups, or 0 if there were no lookups
+     */
+    public double getHitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{" +
+                "hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                ", size=" + size +
+                '}';
+    }
+}
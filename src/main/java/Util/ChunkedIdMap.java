@@ -0,0 +1,134 @@
+package Util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.UnaryOperator;
+
+/**
+ * A lock-free map from positive int IDs to values, for IDs handed out densely from a counter such as an
+ * auto-increment key.
+ *
+ * Values live in fixed-size chunks of an {@link AtomicReferenceArray}, found through a directory that is also an
+ * AtomicReferenceArray, so a lookup is two array reads with no hashing, boxing or locking. Chunks are created on
+ * first write with a compare-and-set. Every operation is lock-free and reads never allocate.
+ *
+ * @param <V> the value type; values should be immutable, since readers share them
+ */
+public class ChunkedIdMap<V> {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    // 2^31 IDs in 4096-entry chunks
+    private static final int DIRECTORY_SIZE = 1 << (31 - CHUNK_BITS);
+
+    private final AtomicReferenceArray<AtomicReferenceArray<V>> directory = new AtomicReferenceArray<>(DIRECTORY_SIZE);
+    private final AtomicInteger highestId = new AtomicInteger();
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * @return the value for the ID, or null if there is none
+     */
+    public V get(int id) {
+        if (id <= 0) {
+            return null;
+        }
+        AtomicReferenceArray<V> chunk = directory.get(id >>> CHUNK_BITS);
+        return chunk == null ? null : chunk.get(id & CHUNK_MASK);
+    }
+
+    /**
+     * Stores a value under an ID that has no value yet.
+     *
+     * @return true if stored, false if the ID already had a value
+     */
+    public boolean putIfAbsent(int id, V value) {
+        if (!chunkFor(id).compareAndSet(id & CHUNK_MASK, null, value)) {
+            return false;
+        }
+        size.incrementAndGet();
+        highestId.accumulateAndGet(id, Math::max);
+        return true;
+    }
+
+    /**
+     * Atomically replaces the value for an ID, retrying if another writer changes it first.
+     *
+     * @param update computes the new value from the current one; returning null leaves the entry unchanged
+     * @return the new value, or null if the ID has no value or update returned null
+     */
+    public V update(int id, UnaryOperator<V> update) {
+        AtomicReferenceArray<V> chunk = id <= 0 ? null : directory.get(id >>> CHUNK_BITS);
+        if (chunk == null) {
+            return null;
+        }
+        int slot = id & CHUNK_MASK;
+        while (true) {
+            V current = chunk.get(slot);
+            if (current == null) {
+                return null;
+            }
+            V next = update.apply(current);
+            if (next == null) {
+                return null;
+            }
+            if (chunk.compareAndSet(slot, current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Replaces the value for an ID only if it is still the expected one.
+     *
+     * @return true if replaced
+     */
+    public boolean replace(int id, V expected, V value) {
+        AtomicReferenceArray<V> chunk = id <= 0 ? null : directory.get(id >>> CHUNK_BITS);
+        return chunk != null && expected != null && value != null
+                && chunk.compareAndSet(id & CHUNK_MASK, expected, value);
+    }
+
+    /**
+     * Removes the value for an ID.
+     *
+     * @return the removed value, or null if there was none
+     */
+    public V remove(int id) {
+        AtomicReferenceArray<V> chunk = id <= 0 ? null : directory.get(id >>> CHUNK_BITS);
+        if (chunk == null) {
+            return null;
+        }
+        V removed = chunk.getAndSet(id & CHUNK_MASK, null);
+        if (removed != null) {
+            size.decrementAndGet();
+        }
+        return removed;
+    }
+
+    /**
+     * @return the highest ID ever stored, or 0; IDs above it certainly have no value
+     */
+    public int getHighestId() {
+        return highestId.get();
+    }
+
+    /**
+     * @return the number of IDs with a value
+     */
+    public int size() {
+        return size.get();
+    }
+
+    private AtomicReferenceArray<V> chunkFor(int id) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("IDs must be positive.");
+        }
+        int index = id >>> CHUNK_BITS;
+        AtomicReferenceArray<V> chunk = directory.get(index);
+        if (chunk == null) {
+            directory.compareAndSet(index, null, new AtomicReferenceArray<>(CHUNK_SIZE));
+            chunk = directory.get(index);
+        }
+        return chunk;
+    }
+}
@@ -0,0 +1,90 @@
+package Util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A growable, thread-safe set of non-negative int IDs stored as a bitset.
+ *
+ * Lookups are a single volatile read plus an array read, with no locking and no allocation. Adds are serialized,
+ * which suits the write-rarely, read-constantly workload this is meant for. Because database IDs are dense
+ * auto-increment values, one bit per possible ID is far smaller than a hash set of boxed Integers and, unlike a Bloom filter, never reports a false positive.
+ */
+public class ConcurrentIdSet {
+    private volatile AtomicLongArray words;
+    private final AtomicInteger maxId = new AtomicInteger(-1);
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * @param expectedMaxId the largest ID expected, used to size the initial bitset
+     */
+    public ConcurrentIdSet(int expectedMaxId) {
+        words = new AtomicLongArray(wordIndex(Math.max(expectedMaxId, 63)) + 1);
+    }
+
+    /**
+     * @param id the ID to test
+     * @return true if the ID has been added
+     */
+    public boolean contains(int id) {
+        if (id < 0) {
+            return false;
+        }
+        AtomicLongArray current = words;
+        int word = wordIndex(id);
+        return word < current.length() && (current.get(word) & bit(id)) != 0;
+    }
+
+    /**
+     * @param id the ID to add, which must not be negative
+     */
+    public synchronized void add(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("IDs must not be negative.");
+        }
+        int word = wordIndex(id);
+        AtomicLongArray current = words;
+        if (word >= current.length()) {
+            current = grow(word);
+        }
+        long mask = bit(id);
+        long previous = current.get(word);
+        if ((previous & mask) == 0) {
+            current.set(word, previous | mask);
+            size.incrementAndGet();
+        }
+        maxId.accumulateAndGet(id, Math::max);
+    }
+
+    /**
+     * @return the largest ID added so far, or -1 if the set is empty
+     */
+    public int getMaxId() {
+        return maxId.get();
+    }
+
+    /**
+     * @return the number of distinct IDs added
+     */
+    public int size() {
+        return size.get();
+    }
+
+    private AtomicLongArray grow(int word) {
+        AtomicLongArray current = words;
+        AtomicLongArray grown = new AtomicLongArray(Math.max(word + 1, current.length() * 2));
+        for (int i = 0; i < current.length(); i++) {
+            grown.set(i, current.get(i));
+        }
+        words = grown;
+        return grown;
+    }
+
+    private static int wordIndex(int id) {
+        return id >>> 6;
+    }
+
+    private static long bit(int id) {
+        return 1L << (id & 63);
+    }
+}
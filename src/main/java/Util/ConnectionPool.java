@@ -0,0 +1,280 @@
+package Util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+/**
+ * A bounded pool of physical JDBC connections.
+ *
+ * Callers receive a lightweight proxy whose {@code close()} hands the physical connection back to the pool instead of
+ * closing it, so code written with try-with-resources keeps working unchanged. At most {@code maxSize} connections are
+ * handed out at once; further callers wait up to {@code acquireTimeoutMillis} for one to be returned. Idle
+ * connections are validated before reuse and connections idle for longer than {@code idleTimeoutMillis} are evicted
+ * in the background, never shrinking the pool below {@code minSize}.
+ */
+public class ConnectionPool {
+    private final DataSource dataSource;
+    private final int minSize;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long validationIntervalMillis;
+    private final int validationTimeoutSeconds;
+
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final LatencyHistogram acquireTimes = new LatencyHistogram();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    /**
+     * @param dataSource the source of physical connections
+     * @param minSize the number of connections kept open even when idle
+     * @param maxSize the maximum number of connections open at once
+     * @param acquireTimeoutMillis how long a caller waits for a free connection before failing
+     * @param idleTimeoutMillis how long a connection may sit idle before it is closed (0 disables eviction)
+     * @param validationIntervalMillis connections idle for longer than this are validated before reuse
+     */
+    public ConnectionPool(DataSource dataSource, int minSize, int maxSize, long acquireTimeoutMillis,
+                          long idleTimeoutMillis, long validationIntervalMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool max size must be at least 1.");
+        }
+        this.dataSource = dataSource;
+        this.maxSize = maxSize;
+        this.minSize = Math.max(0, Math.min(minSize, maxSize));
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.validationTimeoutSeconds = 1;
+        this.permits = new Semaphore(maxSize, true);
+
+        if (idleTimeoutMillis > 0) {
+            evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "connection-pool-evictor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(1, idleTimeoutMillis / 2);
+            evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            evictor = null;
+        }
+    }
+
+    /**
+     * Borrows a connection, waiting for one to become free if the pool is exhausted.
+     *
+     * @return a connection that must be closed to return it to the pool
+     * @throws SQLException if no connection became free within the acquire timeout or the database is unreachable
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed.");
+        }
+        long start = System.nanoTime();
+        waiters.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        } finally {
+            waiters.decrementAndGet();
+        }
+        if (!acquired) {
+            timeouts.incrementAndGet();
+            throw new SQLException("Timed out after " + acquireTimeoutMillis + " ms waiting for a database connection.");
+        }
+
+        try {
+            PooledConnection pooled = takeIdleConnection();
+            if (pooled == null) {
+                pooled = new PooledConnection(dataSource.getConnection());
+                total.incrementAndGet();
+                created.incrementAndGet();
+            }
+            active.incrementAndGet();
+            acquireTimes.record(System.nanoTime() - start);
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens connections until at least {@code minSize} are available. Failures are left for the next caller to see.
+     */
+    public void warmUp() {
+        while (total.get() < minSize && !closed) {
+            try {
+                idle.offerLast(new PooledConnection(dataSource.getConnection()));
+                total.incrementAndGet();
+                created.incrementAndGet();
+            } catch (SQLException e) {
+                e.printStackTrace();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return a point-in-time view of the pool's counters
+     */
+    public PoolStats getStats() {
+        return new PoolStats(active.get(), idle.size(), total.get(), waiters.get(), maxSize, created.get(),
+                destroyed.get(), timeouts.get(), acquireTimes);
+    }
+
+    /**
+     * Closes every idle connection and stops the evictor. Connections still borrowed are closed when returned.
+     */
+    public void close() {
+        closed = true;
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    private PooledConnection takeIdleConnection() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (System.currentTimeMillis() - pooled.lastUsed < validationIntervalMillis || isValid(pooled)) {
+                return pooled;
+            }
+            destroy(pooled);
+        }
+        return null;
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        active.decrementAndGet();
+        try {
+            if (closed || pooled.physical.isClosed()) {
+                destroy(pooled);
+                return;
+            }
+            // Never hand the next borrower an open transaction or a non-default commit mode.
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            pooled.lastUsed = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            destroy(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        total.decrementAndGet();
+        destroyed.incrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        List<PooledConnection> expired = new ArrayList<>();
+        // The oldest connections sit at the tail because returned connections are pushed onto the head.
+        Iterator<PooledConnection> iterator = idle.descendingIterator();
+        while (iterator.hasNext() && total.get() - expired.size() > minSize) {
+            PooledConnection pooled = iterator.next();
+            if (pooled.lastUsed < cutoff && idle.removeFirstOccurrence(pooled)) {
+                expired.add(pooled);
+            }
+        }
+        for (PooledConnection pooled : expired) {
+            destroy(pooled);
+        }
+        warmUp();
+    }
+
+    /**
+     * A physical connection plus the bookkeeping the pool needs for it.
+     */
+    private final class PooledConnection {
+        private final Connection physical;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        private Connection lease() {
+            AtomicBoolean returned = new AtomicBoolean();
+            InvocationHandler handler = (proxy, method, args) -> invoke(returned, proxy, method, args);
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, handler);
+        }
+
+        private Object invoke(AtomicBoolean returned, Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("close".equals(name)) {
+                if (returned.compareAndSet(false, true)) {
+                    release(this);
+                }
+                return null;
+            }
+            if ("isClosed".equals(name)) {
+                return returned.get() || physical.isClosed();
+            }
+            if ("equals".equals(name)) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            }
+            if (returned.get()) {
+                throw new SQLException("Connection has already been returned to the pool.");
+            }
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
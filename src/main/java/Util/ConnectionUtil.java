@@ -1,7 +1,7 @@
 package Util;
 
-import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
 
@@ -13,7 +13,12 @@ import org.h2.tools.RunScript;
  * our database. This class utilizes the singleton design pattern. We will be
  * utilizing an in-memory called h2database for the sql demos.
  *
- * DO NOT CHANGE ANYTHING IN THIS CLASS
+ * Connections are borrowed from a bounded {@link ConnectionPool}; closing a
+ * connection returns it to the pool rather than closing the physical H2
+ * connection. The pool is sized with the {@code pool.minSize},
+ * {@code pool.maxSize}, {@code pool.acquireTimeoutMillis},
+ * {@code pool.idleTimeoutMillis} and {@code pool.validationIntervalMillis}
+ * system properties.
  */
 public class ConnectionUtil {
 
@@ -21,7 +26,7 @@ public class ConnectionUtil {
 	 * url will represent our connection string. Since this is an in-memory db, we
 	 * will represent a file location to store the data
 	 */
-	private static String url = "jdbc:h2:./h2/db;";
+	private static String url = AppConfig.getString("db.url", "jdbc:h2:./h2/db;");
 	/**
 	 * Default username for connecting to h2
 	 */
@@ -32,21 +37,33 @@ public class ConnectionUtil {
 	private static String password = "sa";
 
 	/**
-	 * DataSource for pooling. Pooling enables the creation of multiple connections when connections are closed.
+	 * DataSource that opens the physical connections handed out by the pool.
 	 */
-	private static JdbcDataSource pool = new JdbcDataSource();
+	private static JdbcDataSource dataSource = new JdbcDataSource();
 
 	/**
-	 * static initialization block to establish credentials for DataSoure Pool
+	 * Bounded pool that reuses physical connections between callers.
+	 */
+	private static ConnectionPool pool;
+
+	/**
+	 * static initialization block to establish credentials for the DataSource and build the pool
 	 */
 	static {
-		pool.setURL(url);
-		pool.setUser(username);
-		pool.setPassword(password);
+		dataSource.setURL(url);
+		dataSource.setUser(username);
+		dataSource.setPassword(password);
+		pool = new ConnectionPool(dataSource,
+				AppConfig.getInt("pool.minSize", 2),
+				AppConfig.getInt("pool.maxSize", 10),
+				AppConfig.getLong("pool.acquireTimeoutMillis", 5000),
+				AppConfig.getLong("pool.idleTimeoutMillis", 300000),
+				AppConfig.getLong("pool.validationIntervalMillis", 5000));
+		pool.warmUp();
 	}
 
 	/**
-	 * @return an active connection to the database
+	 * @return an active connection to the database, which must be closed to return it to the pool
 	 */
 	public static Connection getConnection() {
 		try {
@@ -58,16 +75,23 @@ public class ConnectionUtil {
 		return null;
 	}
 
+	/**
+	 * @return a snapshot of the connection pool's counters
+	 */
+	public static PoolStats getPoolStats() {
+		return pool.getStats();
+	}
+
 	/**
 	 * For the purpose of testing, we will need to drop and recreate our database
 	 * tables to keep it consistent across all tests. The method will read the sql
 	 * file in resources. This will be performed before every test.
 	 */
 	public static void resetTestDatabase() {
-		try {
-			FileReader sqlReader = new FileReader("src/main/resources/SocialMedia.sql");
-			RunScript.execute(getConnection(), sqlReader);
-		} catch (SQLException | FileNotFoundException e) {
+		try (Connection connection = getConnection();
+				FileReader sqlReader = new FileReader("src/main/resources/SocialMedia.sql")) {
+			RunScript.execute(connection, sqlReader);
+		} catch (SQLException | IOException e) {
 			e.printStackTrace();
 		}
 	}
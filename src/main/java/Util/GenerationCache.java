@@ -0,0 +1,73 @@
+package Util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Holds one value derived from data that changes as a whole, such as the response listing every row of a table.
+ *
+ * Writers call {@link #advance()} after every change, which makes the held value stale without touching it. The
+ * next {@link #get} rebuilds it, and only once: callers that arrive while a rebuild for the current generation is
+ * running wait for that rebuild instead of starting their own. A rebuild is stamped with the generation read before
+ * it started, so one that overlaps a write is never served to callers who arrive after that write.
+ *
+ * @param <V> the value type; the loader may return null, which is cached like any other value
+ */
+public class GenerationCache<V> {
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    // Rebuilds in progress, keyed by the generation they were started for
+    private final SingleFlight<Long, V> rebuilds = new SingleFlight<>();
+    // The newest value built; replaced under this lock
+    private volatile Stamped<V> current;
+
+    /**
+     * Marks the held value stale. Call it after a change is visible in the source of truth.
+     */
+    public void advance() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * @param loader builds the value when none is held for the current generation
+     * @return the value for the current generation or a newer one
+     * @throws Exception whatever the loader threw, for the caller that ran it and for every caller waiting on it
+     */
+    public V get(Callable<V> loader) throws Exception {
+        long stamp = generation.get();
+        Stamped<V> held = current;
+        if (held != null && held.generation == stamp) {
+            hits.increment();
+            return held.value;
+        }
+        return rebuilds.run(stamp, () -> {
+            V value = loader.call();
+            synchronized (this) {
+                // A slow rebuild must not replace one made for a later generation
+                if (current == null || current.generation < stamp) {
+                    current = new Stamped<>(stamp, value);
+                }
+            }
+            return value;
+        });
+    }
+
+    /**
+     * @return a snapshot of the hit, load and shared-load counters
+     */
+    public LoadStats getStats() {
+        LoadStats rebuildStats = rebuilds.getStats();
+        return new LoadStats(hits.sum(), rebuildStats.getLoads(), rebuildStats.getShared());
+    }
+
+    private static final class Stamped<T> {
+        private final long generation;
+        private final T value;
+
+        private Stamped(long generation, T value) {
+            this.generation = generation;
+            this.value = value;
+        }
+    }
+}
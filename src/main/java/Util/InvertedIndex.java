@@ -0,0 +1,379 @@
+package Util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory full-text index from lower-cased word tokens to the IDs of the documents containing them.
+ *
+ * Each posting list is a sorted, growable int array, so memory is one int per (term, document) pair and
+ * intersections are merges over primitive arrays. Terms are kept in a sorted map so prefix queries are a range scan.
+ * Documents are added, replaced and removed one at a time as they change; searches share a read lock and updates
+ * take the write lock.
+ *
+ * A query is a whitespace-separated list of clauses, all of which must match:
+ * <ul>
+ *     <li>{@code word} - the document contains the word</li>
+ *     <li>{@code wor*} - the document contains a word starting with "wor"</li>
+ *     <li>{@code "two words"} - the document contains the words next to each other, in order</li>
+ * </ul>
+ * A literal {@code AND} between clauses is accepted and ignored.
+ */
+public class InvertedIndex {
+    private final NavigableMap<String, PostingList> postings = new TreeMap<>();
+    // Each document's tokens in order: needed to unindex it and to check phrases
+    private final Map<Integer, String[]> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Indexes a document, replacing anything previously indexed under the same ID.
+     *
+     * @param id the document ID
+     * @param text the document text
+     */
+    public void add(int id, String text) {
+        String[] tokens = tokenize(text);
+        lock.writeLock().lock();
+        try {
+            unindex(id);
+            documents.put(id, tokens);
+            for (String token : tokens) {
+                postings.computeIfAbsent(token, term -> new PostingList()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a document from the index. Does nothing if it was not indexed.
+     *
+     * @param id the document ID
+     */
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            unindex(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops every document.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the documents matching every clause of a query.
+     *
+     * @param query the query, see the class comment for the syntax
+     * @param limit the most IDs to return
+     * @return matching IDs, highest (newest) first
+     * @throws IllegalArgumentException if the query contains no searchable words
+     */
+    public int[] search(String query, int limit) {
+        List<Clause> clauses = parse(query);
+        if (clauses.isEmpty()) {
+            throw new IllegalArgumentException("Query must contain at least one word.");
+        }
+        lock.readLock().lock();
+        try {
+            PostingList[] lists = new PostingList[clauses.size()];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = resolve(clauses.get(i));
+                if (lists[i] == null || lists[i].size == 0) {
+                    return new int[0];
+                }
+            }
+            // Intersect smallest first so the running result only shrinks
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+            PostingList candidates = lists[0];
+            for (int i = 1; i < lists.length && candidates.size > 0; i++) {
+                candidates = PostingList.intersect(candidates, lists[i]);
+            }
+
+            int[] result = new int[Math.min(limit, candidates.size)];
+            int found = 0;
+            for (int i = candidates.size - 1; i >= 0 && found < result.length; i--) {
+                int id = candidates.ids[i];
+                if (matchesPhrases(clauses, documents.get(id))) {
+                    result[found++] = id;
+                }
+            }
+            return found == result.length ? result : Arrays.copyOf(result, found);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of indexed documents
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of distinct terms
+     */
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Splits text into lower-cased runs of letters and digits; everything else separates words.
+     */
+    public static String[] tokenize(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    // Caller holds the write lock
+    private void unindex(int id) {
+        String[] old = documents.remove(id);
+        if (old == null) {
+            return;
+        }
+        for (String token : old) {
+            PostingList list = postings.get(token);
+            // A token repeated in the document was already removed on its first occurrence
+            if (list != null && list.remove(id) && list.size == 0) {
+                postings.remove(token);
+            }
+        }
+    }
+
+    // Caller holds the read lock
+    private PostingList resolve(Clause clause) {
+        if (clause.prefix) {
+            Collection<PostingList> matches =
+                    postings.subMap(clause.words[0], true, clause.words[0] + Character.MAX_VALUE, false).values();
+            return PostingList.union(matches);
+        }
+        PostingList result = null;
+        for (String word : clause.words) {
+            PostingList list = postings.get(word);
+            if (list == null) {
+                return null;
+            }
+            result = result == null ? list : PostingList.intersect(result, list);
+        }
+        return result;
+    }
+
+    private static boolean matchesPhrases(List<Clause> clauses, String[] tokens) {
+        for (Clause clause : clauses) {
+            if (clause.words.length > 1 && !containsSequence(tokens, clause.words)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsSequence(String[] tokens, String[] phrase) {
+        outer:
+        for (int start = 0; start + phrase.length <= tokens.length; start++) {
+            for (int i = 0; i < phrase.length; i++) {
+                if (!tokens[start + i].equals(phrase[i])) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static List<Clause> parse(String query) {
+        List<Clause> clauses = new ArrayList<>();
+        if (query == null) {
+            return clauses;
+        }
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '"') {
+                int end = query.indexOf('"', i + 1);
+                if (end < 0) {
+                    end = query.length();
+                }
+                String[] words = tokenize(query.substring(i + 1, end));
+                if (words.length > 0) {
+                    clauses.add(new Clause(words, false));
+                }
+                i = end + 1;
+            } else {
+                int end = i;
+                while (end < query.length() && !Character.isWhitespace(query.charAt(end))) {
+                    end++;
+                }
+                addWord(clauses, query.substring(i, end));
+                i = end;
+            }
+        }
+        return clauses;
+    }
+
+    private static void addWord(List<Clause> clauses, String word) {
+        if (word.equals("AND")) {
+            return;
+        }
+        boolean prefix = word.endsWith("*");
+        String[] words = tokenize(prefix ? word.substring(0, word.length() - 1) : word);
+        if (words.length == 0) {
+            return;
+        }
+        // "e-mail" is indexed as two words, so it is searched as the phrase "e mail"; with a trailing * only the
+        // last word is a prefix
+        int exact = prefix ? words.length - 1 : words.length;
+        if (exact > 0) {
+            clauses.add(new Clause(Arrays.copyOf(words, exact), false));
+        }
+        if (prefix) {
+            clauses.add(new Clause(new String[]{words[words.length - 1]}, true));
+        }
+    }
+
+    private static final class Clause {
+        private final String[] words;
+        private final boolean prefix;
+
+        private Clause(String[] words, boolean prefix) {
+            this.words = words;
+            this.prefix = prefix;
+        }
+    }
+
+    /**
+     * A sorted, duplicate-free list of document IDs in a growable int array.
+     */
+    private static final class PostingList {
+        private int[] ids;
+        private int size;
+
+        private PostingList() {
+            this(new int[4], 0);
+        }
+
+        private PostingList(int[] ids, int size) {
+            this.ids = ids;
+            this.size = size;
+        }
+
+        private void add(int id) {
+            // IDs normally arrive in increasing order, so this is usually an append
+            if (size > 0 && ids[size - 1] >= id) {
+                int index = Arrays.binarySearch(ids, 0, size, id);
+                if (index >= 0) {
+                    return;
+                }
+                insertAt(-index - 1, id);
+                return;
+            }
+            insertAt(size, id);
+        }
+
+        private void insertAt(int index, int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+        }
+
+        private boolean remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        private static PostingList intersect(PostingList a, PostingList b) {
+            int[] out = new int[Math.min(a.size, b.size)];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            while (i < a.size && j < b.size) {
+                int x = a.ids[i];
+                int y = b.ids[j];
+                if (x == y) {
+                    out[n++] = x;
+                    i++;
+                    j++;
+                } else if (x < y) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return new PostingList(out, n);
+        }
+
+        private static PostingList union(Collection<PostingList> lists) {
+            int total = 0;
+            for (PostingList list : lists) {
+                total += list.size;
+            }
+            int[] all = new int[total];
+            int n = 0;
+            for (PostingList list : lists) {
+                System.arraycopy(list.ids, 0, all, n, list.size);
+                n += list.size;
+            }
+            Arrays.sort(all);
+            int unique = 0;
+            for (int i = 0; i < n; i++) {
+                if (unique == 0 || all[unique - 1] != all[i]) {
+                    all[unique++] = all[i];
+                }
+            }
+            return new PostingList(all, unique);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package Util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import Model.Account;
+import Model.Message;
+import Model.MessagePage;
+
+/**
+ * Hand-written JSON readers and writers for the models, built on one shared Jackson {@link JsonFactory}.
+ *
+ * These replace Jackson databind for Account, Message and MessagePage: no reflection, no per-call ObjectMapper or
+ * JsonNode tree, and the factory's buffers are recycled between calls. The output has the same field names and
+ * values databind produces from the models' getters, and reading rejects unknown fields the same way.
+ */
+public final class JsonCodec {
+    /**
+     * Shared by every reader and writer. A failed stream must not be closed into valid-looking JSON, and streams
+     * passed in are owned by the caller.
+     */
+    public static final JsonFactory FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+    private JsonCodec() {
+    }
+
+    public static void writeAccount(JsonGenerator generator, Account account) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("account_id", account.getAccount_id());
+        generator.writeStringField("username", account.getUsername());
+        generator.writeStringField("password", account.getPassword());
+        generator.writeEndObject();
+    }
+
+    public static void writeMessage(JsonGenerator generator, Message message) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("message_id", message.getMessage_id());
+        generator.writeNumberField("posted_by", message.getPosted_by());
+        generator.writeStringField("message_text", message.getMessage_text());
+        generator.writeNumberField("time_posted_epoch", message.getTime_posted_epoch());
+        generator.writeEndObject();
+    }
+
+    public static void writeMessagePage(JsonGenerator generator, MessagePage page) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName("messages");
+        writeMessages(generator, page.getMessages());
+        generator.writeStringField("next_cursor", page.getNext_cursor());
+        generator.writeStringField("next", page.getNext());
+        generator.writeEndObject();
+    }
+
+    public static void writeMessages(JsonGenerator generator, List<Message> messages) throws IOException {
+        if (messages == null) {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartArray();
+        for (Message message : messages) {
+            writeMessage(generator, message);
+        }
+        generator.writeEndArray();
+    }
+
+    /**
+     * @return the account as a JSON string
+     */
+    public static String toJson(Account account) throws IOException {
+        // A plain writer: the generator still recycles its own buffers through the factory
+        StringWriter out = new StringWriter(128);
+        try (JsonGenerator generator = FACTORY.createGenerator(out)) {
+            writeAccount(generator, account);
+        }
+        return out.toString();
+    }
+
+    /**
+     * @return the message as a JSON string
+     */
+    public static String toJson(Message message) throws IOException {
+        StringWriter out = new StringWriter(128);
+        try (JsonGenerator generator = FACTORY.createGenerator(out)) {
+            writeMessage(generator, message);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Reads one Account object. Missing fields keep their defaults; unknown fields are an error.
+     */
+    public static Account readAccount(JsonParser parser) throws IOException {
+        expectStartObject(parser);
+        Account account = new Account();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "account_id":
+                    account.setAccount_id(readInt(parser, value));
+                    break;
+                case "username":
+                    account.setUsername(readString(parser, value));
+                    break;
+                case "password":
+                    account.setPassword(readString(parser, value));
+                    break;
+                default:
+                    throw unknownField(parser, field, "Account");
+            }
+        }
+        return account;
+    }
+
+    /**
+     * Reads one Message object. Missing fields keep their defaults; unknown fields are an error.
+     */
+    public static Message readMessage(JsonParser parser) throws IOException {
+        expectStartObject(parser);
+        Message message = new Message();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "message_id":
+                    message.setMessage_id(readInt(parser, value));
+                    break;
+                case "posted_by":
+                    message.setPosted_by(readInt(parser, value));
+                    break;
+                case "message_text":
+                    message.setMessage_text(readString(parser, value));
+                    break;
+                case "time_posted_epoch":
+                    message.setTime_posted_epoch(readLong(parser, value));
+                    break;
+                default:
+                    throw unknownField(parser, field, "Message");
+            }
+        }
+        return message;
+    }
+
+    public static Account readAccount(String json) throws IOException {
+        try (JsonParser parser = FACTORY.createParser(json)) {
+            return readAccount(parser);
+        }
+    }
+
+    public static Message readMessage(String json) throws IOException {
+        try (JsonParser parser = FACTORY.createParser(json)) {
+            return readMessage(parser);
+        }
+    }
+
+    /**
+     * Pulls message_text out of a PATCH body without building the rest of the object. Other fields are skipped,
+     * but the whole body is still read so malformed JSON is reported.
+     *
+     * @return the text, or null if the body is empty, has no message_text, or it is null, an object or an array
+     * @throws IOException if the body is not valid JSON
+     */
+    public static String readMessageText(InputStream body) throws IOException {
+        try (JsonParser parser = FACTORY.createParser(body)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                return null;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                return null;
+            }
+            String text = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                boolean wanted = "message_text".equals(parser.getCurrentName());
+                JsonToken value = parser.nextToken();
+                if (value.isScalarValue()) {
+                    if (wanted) {
+                        text = value == JsonToken.VALUE_NULL ? null : parser.getText();
+                    }
+                } else {
+                    parser.skipChildren();
+                    if (wanted) {
+                        text = null;
+                    }
+                }
+            }
+            return text;
+        }
+    }
+
+    private static void expectStartObject(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken() == null ? parser.nextToken() : parser.currentToken();
+        if (token != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a JSON object but found " + token);
+        }
+    }
+
+    // Like databind, numbers may also arrive as numeric strings and null leaves the default
+    private static int readInt(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getIntValue();
+        }
+        if (value == JsonToken.VALUE_NULL) {
+            return 0;
+        }
+        if (value == JsonToken.VALUE_STRING) {
+            try {
+                return Integer.parseInt(parser.getText().trim());
+            } catch (NumberFormatException e) {
+                throw new JsonParseException(parser, "Not an int: " + parser.getText());
+            }
+        }
+        throw new JsonParseException(parser, "Expected an int but found " + value);
+    }
+
+    private static long readLong(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        if (value == JsonToken.VALUE_NULL) {
+            return 0L;
+        }
+        if (value == JsonToken.VALUE_STRING) {
+            try {
+                return Long.parseLong(parser.getText().trim());
+            } catch (NumberFormatException e) {
+                throw new JsonParseException(parser, "Not a long: " + parser.getText());
+            }
+        }
+        throw new JsonParseException(parser, "Expected a long but found " + value);
+    }
+
+    private static String readString(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (value.isScalarValue()) {
+            return parser.getText();
+        }
+        throw new JsonParseException(parser, "Expected a string but found " + value);
+    }
+
+    private static JsonParseException unknownField(JsonParser parser, String field, String type) {
+        return new JsonParseException(parser, "Unrecognized field \"" + field + "\" for " + type);
+    }
+}
@@ -0,0 +1,116 @@
+package Util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size, log-linear histogram of non-negative values (usually nanoseconds).
+ *
+ * Each power of two is split into 8 linear sub-buckets, so any recorded value is reported within 12.5% of its
+ * true value. All buckets are allocated up front and recording only touches atomics, which makes
+ * {@link #record(long)} lock-free and allocation-free and safe to call from any number of threads.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int LINEAR_LIMIT = SUB_COUNT * 2;
+    private static final int BUCKETS = LINEAR_LIMIT + (63 - SUB_BITS - 1) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalSum = new AtomicLong();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * Records a single value. Negative values are clamped to zero.
+     *
+     * @param value the value to record
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucketIndex(value));
+        totalCount.incrementAndGet();
+        totalSum.addAndGet(value);
+        maxValue.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * @return the sum of all recorded values
+     */
+    public long getSum() {
+        return totalSum.get();
+    }
+
+    /**
+     * @return the largest recorded value, or 0 if nothing was recorded
+     */
+    public long getMax() {
+        return maxValue.get();
+    }
+
+    /**
+     * Estimates a percentile from the bucket counts.
+     *
+     * @param percentile a value between 0 and 100, e.g. 99.9
+     * @return the upper bound of the bucket holding the requested percentile, or 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long total = totalCount.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * Math.min(100.0, Math.max(0.0, percentile)) / 100.0);
+        if (rank < 1) {
+            rank = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), maxValue.get());
+            }
+        }
+        return maxValue.get();
+    }
+
+    /**
+     * Clears all recorded values. Values recorded concurrently with a reset may be partially kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalSum.set(0);
+        maxValue.set(0);
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return LINEAR_LIMIT + (exponent - SUB_BITS - 1) * SUB_COUNT + sub;
+    }
+
+    private static long bucketUpperBound(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int exponent = (index - LINEAR_LIMIT) / SUB_COUNT + SUB_BITS + 1;
+        int sub = (index - LINEAR_LIMIT) % SUB_COUNT;
+        long width = 1L << (exponent - SUB_BITS);
+        long lower = (SUB_COUNT + sub) * width;
+        return lower + width - 1;
+    }
+}
@@ -0,0 +1,100 @@
+package Util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads UTF-8 text one line at a time with a cap on line length, so a stream of any size, with or without line
+ * breaks, is read in bounded memory.
+ *
+ * Lines end at "\n" or "\r\n"; the terminator is not returned. A line longer than the cap is skipped up to its end
+ * and reported with {@link LineTooLongException}, after which reading carries on with the next line.
+ */
+public class LineReader implements Closeable {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final int maxLength;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder line = new StringBuilder();
+    private int position;
+    private int limit;
+
+    /**
+     * @param in the stream to read; closed by {@link #close()}
+     * @param maxLength the longest line accepted, in characters
+     */
+    public LineReader(InputStream in, int maxLength) {
+        this.reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * @return the next line, or null at the end of the stream
+     * @throws LineTooLongException if the line is longer than the cap; it has been skipped
+     * @throws IOException if the stream cannot be read
+     */
+    public String readLine() throws IOException {
+        line.setLength(0);
+        boolean tooLong = false;
+        while (true) {
+            if (position == limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    if (!tooLong && line.length() == 0) {
+                        return null;
+                    }
+                    // A last line without a terminator still counts
+                    return finish(tooLong);
+                }
+            }
+            int start = position;
+            while (position < limit && buffer[position] != '\n') {
+                position++;
+            }
+            if (!tooLong) {
+                line.append(buffer, start, position - start);
+                if (line.length() > maxLength + 1) {
+                    // One extra character is allowed for a '\r' that finish() strips
+                    tooLong = true;
+                    line.setLength(0);
+                }
+            }
+            if (position < limit) {
+                // Found the terminator
+                position++;
+                return finish(tooLong);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private String finish(boolean tooLong) throws LineTooLongException {
+        if (line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+            line.setLength(line.length() - 1);
+        }
+        if (tooLong || line.length() > maxLength) {
+            throw new LineTooLongException(maxLength);
+        }
+        return line.toString();
+    }
+
+    /**
+     * A line was longer than the reader's cap. The reader is positioned at the start of the following line.
+     */
+    public static class LineTooLongException extends IOException {
+        public LineTooLongException(int maxLength) {
+            super("Line is longer than " + maxLength + " characters.");
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package Util;
+
+/**
+ * An immutable snapshot of how a {@link GenerationCache} or {@link SingleFlight} answered its callers, taken by
+ * their getStats methods.
+ */
+public class LoadStats {
+    private final long hits;
+    private final long loads;
+    private final long shared;
+
+    public LoadStats(long hits, long loads, long shared) {
+        this.hits = hits;
+        this.loads = loads;
+        this.shared = shared;
+    }
+
+    /**
+     * @return calls answered with a value already held
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return calls that ran the loader
+     */
+    public long getLoads() {
+        return loads;
+    }
+
+    /**
+     * @return calls that waited for a load another caller was running instead of running their own
+     */
+    public long getShared() {
+        return shared;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadStats{" +
+                "hits=" + hits +
+                ", loads=" + loads +
+                ", shared=" + shared +
+                '}';
+    }
+}
@@ -0,0 +1,32 @@
+package Util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide registry of SQL statement timers.
+ *
+ * DAOs look their timers up once, into static final fields, and then only call {@link LatencyHistogram#record(long)}
+ * on the hot path, which is lock-free and allocation-free.
+ */
+public final class Metrics {
+    private static final Map<String, LatencyHistogram> SQL_TIMERS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * @param statement a short, stable name for the statement, e.g. "message_select_by_id"
+     * @return the histogram of execution times in nanoseconds for that statement, created on first use
+     */
+    public static LatencyHistogram sqlTimer(String statement) {
+        return SQL_TIMERS.computeIfAbsent(statement, name -> new LatencyHistogram());
+    }
+
+    /**
+     * @return every registered statement timer, keyed by statement name
+     */
+    public static Map<String, LatencyHistogram> sqlTimers() {
+        return SQL_TIMERS;
+    }
+}
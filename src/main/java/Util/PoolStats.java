@@ -0,0 +1,105 @@
+package Util;
+
+/**
+ * An immutable snapshot of {@link ConnectionPool} counters, taken by {@link ConnectionPool#getStats()}.
+ */
+public class PoolStats {
+    private final int active;
+    private final int idle;
+    private final int total;
+    private final int waiters;
+    private final int maxSize;
+    private final long created;
+    private final long destroyed;
+    private final long timeouts;
+    private final LatencyHistogram acquireTimes;
+
+    public PoolStats(int active, int idle, int total, int waiters, int maxSize, long created, long destroyed,
+                     long timeouts, LatencyHistogram acquireTimes) {
+        this.active = active;
+        this.idle = idle;
+        this.total = total;
+        this.waiters = waiters;
+        this.maxSize = maxSize;
+        this.created = created;
+        this.destroyed = destroyed;
+        this.timeouts = timeouts;
+        this.acquireTimes = acquireTimes;
+    }
+
+    /**
+     * @return the number of connections currently borrowed
+     */
+    public int getActive() {
+        return active;
+    }
+
+    /**
+     * @return the number of open connections waiting in the pool
+     */
+    public int getIdle() {
+        return idle;
+    }
+
+    /**
+     * @return the number of physical connections currently open
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return the number of callers currently blocked waiting for a connection
+     */
+    public int getWaiters() {
+        return waiters;
+    }
+
+    /**
+     * @return the configured maximum pool size
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the number of physical connections opened since startup
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    /**
+     * @return the number of physical connections closed since startup
+     */
+    public long getDestroyed() {
+        return destroyed;
+    }
+
+    /**
+     * @return the number of borrow attempts that gave up waiting
+     */
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * @return the live histogram of borrow times in nanoseconds
+     */
+    public LatencyHistogram getAcquireTimes() {
+        return acquireTimes;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolStats{" +
+                "active=" + active +
+                ", idle=" + idle +
+                ", total=" + total +
+                ", waiters=" + waiters +
+                ", maxSize=" + maxSize +
+                ", acquireP50Nanos=" + acquireTimes.getPercentile(50) +
+                ", acquireP99Nanos=" + acquireTimes.getPercentile(99) +
+                '}';
+    }
+}
@@ -0,0 +1,160 @@
+package Util;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory store of opaque session tokens, each mapped to an account_id until it expires.
+ *
+ * Tokens are 192 random bits from a SecureRandom, so they cannot be guessed and carry no information. The map is
+ * split into stripes, each with its own lock, so concurrent logins and lookups only contend when they hash to the
+ * same stripe. Expired tokens are dropped when they are looked up, and each stripe sweeps itself every so many
+ * inserts so tokens that are never used again do not pile up.
+ */
+public class SessionStore {
+    /**
+     * Returned by {@link #getAccountId(String)} for a token that is unknown or has expired.
+     */
+    public static final int NO_SESSION = -1;
+
+    private static final int STRIPES = 16;
+    private static final int TOKEN_BYTES = 24;
+    // Inserts into a stripe between sweeps for expired tokens
+    private static final int SWEEP_INTERVAL = 256;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final SecureRandom random = new SecureRandom();
+    private final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+
+    /**
+     * @param ttlMillis how long a token stays valid after it is issued
+     */
+    public SessionStore(long ttlMillis) {
+        this(ttlMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * @param ttlMillis how long a token stays valid after it is issued
+     * @param clock the current time in milliseconds
+     */
+    public SessionStore(long ttlMillis, LongSupplier clock) {
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("Session lifetime must be positive.");
+        }
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Issues a new token for an account.
+     *
+     * @param accountId the authenticated account
+     * @return the token to hand to the client
+     */
+    public String create(int accountId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = encoder.encodeToString(bytes);
+        long now = clock.getAsLong();
+        Stripe stripe = stripeFor(token);
+        synchronized (stripe) {
+            stripe.sessions.put(token, new Session(accountId, now + ttlMillis));
+            if (++stripe.insertsSinceSweep >= SWEEP_INTERVAL) {
+                stripe.sweep(now);
+            }
+        }
+        return token;
+    }
+
+    /**
+     * @param token a token from {@link #create(int)}
+     * @return the token's account_id, or {@link #NO_SESSION} if the token is unknown or expired
+     */
+    public int getAccountId(String token) {
+        if (token == null) {
+            return NO_SESSION;
+        }
+        Stripe stripe = stripeFor(token);
+        synchronized (stripe) {
+            Session session = stripe.sessions.get(token);
+            if (session == null) {
+                return NO_SESSION;
+            }
+            if (session.expiresAt <= clock.getAsLong()) {
+                stripe.sessions.remove(token);
+                return NO_SESSION;
+            }
+            return session.accountId;
+        }
+    }
+
+    /**
+     * Ends a session before it expires.
+     *
+     * @return true if the token was live
+     */
+    public boolean invalidate(String token) {
+        if (token == null) {
+            return false;
+        }
+        Stripe stripe = stripeFor(token);
+        synchronized (stripe) {
+            Session session = stripe.sessions.remove(token);
+            return session != null && session.expiresAt > clock.getAsLong();
+        }
+    }
+
+    /**
+     * @return the number of tokens held, including expired ones not yet swept
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.sessions.size();
+            }
+        }
+        return size;
+    }
+
+    private Stripe stripeFor(String token) {
+        int hash = token.hashCode();
+        hash ^= (hash >>> 16);
+        return stripes[hash & (STRIPES - 1)];
+    }
+
+    private static final class Stripe {
+        private final Map<String, Session> sessions = new HashMap<>();
+        private int insertsSinceSweep;
+
+        // Caller holds the stripe's lock
+        private void sweep(long now) {
+            insertsSinceSweep = 0;
+            Iterator<Session> it = sessions.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().expiresAt <= now) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    private static final class Session {
+        private final int accountId;
+        private final long expiresAt;
+
+        private Session(int accountId, long expiresAt) {
+            this.accountId = accountId;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
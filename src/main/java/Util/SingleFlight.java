@@ -0,0 +1,94 @@
+package Util;
+
+import java.sql.SQLException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces identical concurrent loads: while a load for a key is running, other callers asking for the same key
+ * wait for its result instead of running their own. Nothing is kept once the load finishes, so this bounds the
+ * number of identical queries in flight to one without caching anything.
+ *
+ * A caller that joins a load shares its result, which may predate a write that committed after the load started.
+ * Writers therefore call {@link #forget} once their change is visible, so callers that arrive afterwards start a
+ * fresh load.
+ *
+ * @param <K> the key type
+ * @param <V> the value type; loads may return null, and the same instance is handed to every caller that shared it
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+
+    /**
+     * @param key identifies the load; equal keys must load equal values
+     * @param loader reads the value from the source of truth
+     * @return the value loaded by this caller or by the load it joined
+     * @throws Exception whatever the loader threw, for the caller that ran it and for every caller that joined it
+     */
+    public V run(K key, Callable<V> loader) throws Exception {
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, load);
+        if (running != null) {
+            shared.increment();
+            try {
+                return running.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+        loads.increment();
+        try {
+            V value = loader.call();
+            load.complete(value);
+            return value;
+        } catch (Exception | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, load);
+        }
+    }
+
+    /**
+     * Like {@link #run}, for callers that only declare SQLException, such as a service in front of a DAO.
+     *
+     * @return the value loaded by this caller or by the load it joined
+     * @throws SQLException what the loader threw, or an SQLException wrapping any other checked exception; an
+     * interrupted wait also restores the thread's interrupt flag
+     */
+    public V runSql(K key, Callable<V> loader) throws SQLException {
+        try {
+            return run(key, loader);
+        } catch (SQLException | RuntimeException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            // Waiting on another caller's read
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a shared read.", e);
+        } catch (Exception e) {
+            throw new SQLException("Shared read failed.", e);
+        }
+    }
+
+    /**
+     * Detaches any load running for the key, so later callers do not join it. Callers already waiting on it still
+     * get its result.
+     *
+     * @param key the key whose data just changed
+     */
+    public void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    /**
+     * @return a snapshot of the load and shared-load counters; hits are always 0, since nothing is kept
+     */
+    public LoadStats getStats() {
+        return new LoadStats(0, loads.sum(), shared.sum());
+    }
+}
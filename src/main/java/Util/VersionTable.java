@@ -0,0 +1,59 @@
+package Util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A growable, thread-safe map from non-negative int IDs to version numbers, for answering conditional requests
+ * without reading the data itself.
+ *
+ * Every {@link #bump} stamps the ID with a fresh value from one counter, so a version is never reused for an ID
+ * and an ID that was never bumped reads as 0. Versions are kept in one long per possible ID, like
+ * {@link ConcurrentIdSet} keeps bits: lookups are a volatile read plus an array read, and bumps are serialized.
+ */
+public class VersionTable {
+    private volatile AtomicLongArray versions;
+    private final AtomicLong counter = new AtomicLong();
+
+    /**
+     * @param expectedMaxId the largest ID expected, used to size the initial table
+     */
+    public VersionTable(int expectedMaxId) {
+        versions = new AtomicLongArray(Math.max(expectedMaxId, 63) + 1);
+    }
+
+    /**
+     * @param id the ID to look up
+     * @return the ID's current version, or 0 if it has never been bumped
+     */
+    public long get(int id) {
+        AtomicLongArray current = versions;
+        return id >= 0 && id < current.length() ? current.get(id) : 0;
+    }
+
+    /**
+     * Gives the ID a new version, higher than any handed out before.
+     *
+     * @param id the ID whose data just changed; negative IDs never exist and are ignored
+     */
+    public synchronized void bump(int id) {
+        if (id < 0) {
+            return;
+        }
+        AtomicLongArray current = versions;
+        if (id >= current.length()) {
+            current = grow(id);
+        }
+        current.set(id, counter.incrementAndGet());
+    }
+
+    private AtomicLongArray grow(int id) {
+        AtomicLongArray current = versions;
+        AtomicLongArray grown = new AtomicLongArray(Math.max(id + 1, current.length() * 2));
+        for (int i = 0; i < current.length(); i++) {
+            grown.set(i, current.get(i));
+        }
+        versions = grown;
+        return grown;
+    }
+}
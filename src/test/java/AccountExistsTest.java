@@ -0,0 +1,129 @@
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import DAO.InMemoryAccountStore;
+import Model.Account;
+import Service.AccountService;
+
+public class AccountExistsTest {
+    CountingAccountStore accountStore;
+    AccountService accountService;
+
+    /**
+     * Before every test, create a store holding one account and a service that has already loaded its IDs.
+     */
+    @Before
+    public void setUp() throws SQLException {
+        accountStore = new CountingAccountStore();
+        accountStore.createAccount(new Account("first", "password"));
+        accountService = new AccountService(accountStore);
+        accountService.warmUp();
+    }
+
+    /**
+     * IDs that were never registered, above and below the largest known ID, once account 3 has been registered
+     *
+     * Expected:
+     *  Known IDs are found and unknown ones rejected, all without a single lookup in the store
+     */
+    @Test
+    public void rejectsUnknownIdsFromMemory() throws Exception {
+        accountStore.createAccount(new Account("second", "password"));
+        accountService.registerAccount(new Account("third", "password"));
+
+        Assert.assertTrue(accountService.exists(1));
+        Assert.assertTrue(accountService.exists(3));
+        Assert.assertFalse(accountService.exists(4));
+        Assert.assertFalse(accountService.exists(99));
+        // Created behind the service's back, so this process does not know it
+        Assert.assertFalse(accountService.exists(2));
+        Assert.assertEquals(0, accountStore.lookups.get());
+    }
+
+    /**
+     * Accounts 2 and 3 are created by another writer, with accounts.externalWriters set. Checking 3 first makes it
+     * the largest ID the service knows, but account 2 must still be found.
+     */
+    @Test
+    public void findsAccountsCreatedByExternalWriters() throws SQLException {
+        System.setProperty("accounts.externalWriters", "true");
+        try {
+            accountService = new AccountService(accountStore);
+            accountService.warmUp();
+        } finally {
+            System.clearProperty("accounts.externalWriters");
+        }
+        accountStore.createAccount(new Account("second", "password"));
+        accountStore.createAccount(new Account("third", "password"));
+
+        Assert.assertTrue(accountService.exists(3));
+        Assert.assertTrue(accountService.exists(2));
+        Assert.assertFalse(accountService.exists(4));
+    }
+
+    /**
+     * A registration is stopped after its account is created but before the service has recorded the ID
+     *
+     * Expected:
+     *  The account is found by asking the store, since the set may be missing it; once the registration ends the
+     *  set answers alone again
+     */
+    @Test
+    public void findsAccountWhileItsRegistrationFinishes() throws Exception {
+        accountStore.pauseAfterCreate = new CountDownLatch(1);
+        Thread registration = new Thread(() -> {
+            try {
+                accountService.registerAccount(new Account("slow", "password"));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        registration.start();
+        Assert.assertTrue(accountStore.created.await(5, TimeUnit.SECONDS));
+
+        Assert.assertTrue(accountService.exists(2));
+        Assert.assertEquals(1, accountStore.lookups.get());
+
+        accountStore.pauseAfterCreate.countDown();
+        registration.join();
+        Assert.assertTrue(accountService.exists(2));
+        Assert.assertFalse(accountService.exists(3));
+        Assert.assertEquals(1, accountStore.lookups.get());
+    }
+
+    /**
+     * Counts getAccountById calls, and can hold a createAccount call once the account exists.
+     */
+    private static final class CountingAccountStore extends InMemoryAccountStore {
+        private final AtomicInteger lookups = new AtomicInteger();
+        private final CountDownLatch created = new CountDownLatch(1);
+        private volatile CountDownLatch pauseAfterCreate;
+
+        @Override
+        public Account createAccount(Account account) throws SQLException {
+            Account stored = super.createAccount(account);
+            CountDownLatch pause = pauseAfterCreate;
+            if (pause != null) {
+                created.countDown();
+                try {
+                    pause.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return stored;
+        }
+
+        @Override
+        public Account getAccountById(int accountId) {
+            lookups.incrementAndGet();
+            return super.getAccountById(accountId);
+        }
+    }
+}
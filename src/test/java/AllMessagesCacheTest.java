@@ -0,0 +1,81 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class AllMessagesCacheTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/messages before and after a new message is posted
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: a repeated read is served from the cache, and a read after the post lists the new message
+     */
+    @Test
+    public void listingRebuiltOnlyAfterWrites() throws IOException, InterruptedException {
+        Message seeded = new Message(1, 1, "test message 1", 1669947792L);
+        Assert.assertEquals(List.of(seeded), allMessages());
+        Assert.assertEquals(List.of(seeded), allMessages());
+
+        HttpRequest post = HttpRequest.newBuilder(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"posted_by\":1,\"message_text\":\"fresh\",\"time_posted_epoch\":1669947793}"))
+                .build();
+        Assert.assertEquals(200, webClient.send(post, HttpResponse.BodyHandlers.ofString()).statusCode());
+        Assert.assertEquals(List.of(seeded, new Message(2, 1, "fresh", 1669947793L)), allMessages());
+
+        String metrics = webClient.send(HttpRequest.newBuilder(URI.create("http://localhost:8080/metrics")).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        Assert.assertTrue(metrics.contains("response_cache_requests_total{route=\"/messages\",result=\"hit\"} 1"));
+        Assert.assertTrue(metrics.contains("response_cache_requests_total{route=\"/messages\",result=\"rebuild\"} 2"));
+    }
+
+    private List<Message> allMessages() throws IOException, InterruptedException {
+        HttpResponse<String> response = webClient.send(
+                HttpRequest.newBuilder(URI.create("http://localhost:8080/messages")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), new TypeReference<List<Message>>() {});
+    }
+}
@@ -0,0 +1,163 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import DAO.MessageDAO;
+import Model.Message;
+import Service.AccountService;
+import Service.MessageService;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class AsyncHandlerModeTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app with handlers offloaded to the worker
+     * executor, and create a new webClient and ObjectMapper for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        System.setProperty("api.async.enabled", "true");
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+        System.clearProperty("api.async.enabled");
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages and then GET localhost:8080/messages/2 in async mode
+     *
+     * Expected Response:
+     *  Status Code: 200 for both
+     *  Response Body: JSON representation of the created message for both
+     */
+    @Test
+    public void createThenRetrieveMessageAsync() throws IOException, InterruptedException {
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{" +
+                        "\"posted_by\":1, " +
+                        "\"message_text\": \"hello message\", " +
+                        "\"time_posted_epoch\": 1669947792}"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> postResponse = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, postResponse.statusCode());
+
+        Message expectedResult = new Message(2, 1, "hello message", 1669947792);
+        Assert.assertEquals(expectedResult, objectMapper.readValue(postResponse.body(), Message.class));
+
+        HttpResponse<String> getResponse = get("http://localhost:8080/messages/2");
+        Assert.assertEquals(200, getResponse.statusCode());
+        Assert.assertEquals(expectedResult, objectMapper.readValue(getResponse.body(), Message.class));
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/100 (message does NOT exist) in async mode
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body:
+     */
+    @Test
+    public void retrieveMissingMessageAsync() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("http://localhost:8080/messages/100");
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertTrue(response.body().isEmpty());
+    }
+
+    /**
+     * Filling a one-slot worker executor with a GET localhost:8080/messages/2 that blocks in the database, then
+     * sending http requests to GET localhost:8080/messages/1 and GET localhost:8080/metrics
+     *
+     * Expected Response:
+     *  Status Code: 503 with Retry-After: 1 for the message while the executor is full; 200 for /metrics, which is
+     *  never offloaded, and 200 for the blocked request once it is let go
+     */
+    @Test
+    public void saturatedExecutorAnswers503() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        System.setProperty("api.async.threads", "1");
+        System.setProperty("api.async.maxQueued", "0");
+        try {
+            restartWith(new MessageDAO() {
+                @Override
+                public Message getMessageById(int messageId) throws SQLException {
+                    if (messageId == 2) {
+                        entered.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    return super.getMessageById(messageId);
+                }
+            });
+        } finally {
+            System.clearProperty("api.async.threads");
+            System.clearProperty("api.async.maxQueued");
+        }
+
+        HttpRequest blockedRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/2"))
+                .build();
+        CompletableFuture<HttpResponse<String>> blocked =
+                webClient.sendAsync(blockedRequest, HttpResponse.BodyHandlers.ofString());
+        try {
+            Assert.assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+            HttpResponse<String> rejected = get("http://localhost:8080/messages/1");
+            Assert.assertEquals(503, rejected.statusCode());
+            Assert.assertEquals("1", rejected.headers().firstValue("Retry-After").orElse(null));
+            Assert.assertEquals(200, get("http://localhost:8080/metrics").statusCode());
+        } finally {
+            release.countDown();
+        }
+        Assert.assertEquals(200, blocked.get(5, TimeUnit.SECONDS).statusCode());
+    }
+
+    private void restartWith(MessageDAO messageStore) throws InterruptedException {
+        app.stop();
+        socialMediaController = new SocialMediaController(new AccountService(), new MessageService(messageStore));
+        app = socialMediaController.startAPI();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    private HttpResponse<String> get(String uri) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(uri))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
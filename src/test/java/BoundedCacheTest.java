@@ -0,0 +1,135 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import Util.BoundedCache;
+import Util.CacheStats;
+import Util.VersionTable;
+
+public class BoundedCacheTest {
+    // Integer keys that are multiples of 16 all land in the same one of the cache's 16 segments
+    private static final int A = 0;
+    private static final int B = 16;
+    private static final int C = 32;
+
+    /**
+     * A full segment evicts its least recently read entry, not its oldest one.
+     */
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        // Two entries per segment
+        BoundedCache<Integer, String> cache = new BoundedCache<>(32, 0);
+        cache.put(A, "a");
+        cache.put(B, "b");
+        Assert.assertEquals("a", cache.get(A));
+        cache.put(C, "c");
+
+        Assert.assertNull(cache.get(B));
+        Assert.assertEquals("a", cache.get(A));
+        Assert.assertEquals("c", cache.get(C));
+        Assert.assertEquals(1, cache.getStats().getEvictions());
+    }
+
+    /**
+     * An entry read after its time-to-live is a miss and is removed.
+     */
+    @Test
+    public void expiresAfterTtl() throws InterruptedException {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(32, 20);
+        cache.put(A, "a");
+        Assert.assertEquals("a", cache.get(A));
+        Thread.sleep(50);
+
+        Assert.assertNull(cache.get(A));
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(1, cache.getStats().getEvictions());
+    }
+
+    /**
+     * A value loaded before an invalidation is not stored; one loaded after it is.
+     */
+    @Test
+    public void putIfNotInvalidatedSkipsStaleLoads() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(32, 0);
+        long stamp = cache.invalidationStamp();
+        cache.invalidate(B);
+        cache.putIfNotInvalidated(A, "stale", stamp);
+        Assert.assertNull(cache.get(A));
+
+        cache.putIfNotInvalidated(A, "fresh", cache.invalidationStamp());
+        Assert.assertEquals("fresh", cache.get(A));
+    }
+
+    /**
+     * A conditional put guarded by a per-key version ignores changes to other keys but not to its own.
+     */
+    @Test
+    public void putIfChecksPerKeyVersion() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(32, 0);
+        VersionTable versions = new VersionTable(64);
+        long version = versions.get(A);
+        versions.bump(B);
+        cache.invalidate(B);
+        cache.putIf(A, "fresh", () -> versions.get(A) == version);
+        Assert.assertEquals("fresh", cache.get(A));
+
+        long before = versions.get(A);
+        versions.bump(A);
+        cache.invalidate(A);
+        cache.putIf(A, "stale", () -> versions.get(A) == before);
+        Assert.assertNull(cache.get(A));
+    }
+
+    /**
+     * Hits, misses and size are counted as lookups happen.
+     */
+    @Test
+    public void countsHitsAndMisses() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(32, 0);
+        cache.get(A);
+        cache.put(A, "a");
+        cache.get(A);
+        cache.get(A);
+
+        CacheStats stats = cache.getStats();
+        Assert.assertEquals(2, stats.getHits());
+        Assert.assertEquals(1, stats.getMisses());
+        Assert.assertEquals(1, stats.getSize());
+        Assert.assertEquals(2.0 / 3, stats.getHitRatio(), 1e-9);
+    }
+
+    /**
+     * With a weigher the bound is total weight: as many least recently used entries go as it takes to fit.
+     */
+    @Test
+    public void evictsByWeight() {
+        // A weight of 10 per segment
+        BoundedCache<Integer, byte[]> cache = new BoundedCache<>(160, 0, value -> value.length);
+        cache.put(A, new byte[4]);
+        cache.put(B, new byte[4]);
+        cache.get(A);
+        cache.put(C, new byte[4]);
+
+        Assert.assertNull(cache.get(B));
+        Assert.assertNotNull(cache.get(A));
+        Assert.assertEquals(8, cache.weight());
+
+        cache.put(C, new byte[9]);
+        Assert.assertNull(cache.get(A));
+        Assert.assertEquals(9, cache.weight());
+    }
+
+    /**
+     * A value heavier than a whole segment is never stored, and it replaces nothing but its own key.
+     */
+    @Test
+    public void skipsValuesHeavierThanSegment() {
+        BoundedCache<Integer, byte[]> cache = new BoundedCache<>(160, 0, value -> value.length);
+        cache.put(A, new byte[4]);
+        cache.put(B, new byte[4]);
+        cache.put(B, new byte[11]);
+
+        Assert.assertNull(cache.get(B));
+        Assert.assertNotNull(cache.get(A));
+        Assert.assertEquals(4, cache.weight());
+    }
+}
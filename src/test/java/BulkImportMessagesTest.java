@@ -0,0 +1,170 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class BulkImportMessagesTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages/bulk with valid lines mixed with a blank line,
+     * malformed JSON, an unknown account and an empty message
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: one NDJSON result per non-blank line, in order; only the valid lines are inserted
+     */
+    @Test
+    public void importReportsEachLine() throws IOException, InterruptedException {
+        String body = "{\"posted_by\":1,\"message_text\":\"first import\",\"time_posted_epoch\":1669947793}\n"
+                + "\n"
+                + "{\"posted_by\":1,\"message_text\":\n"
+                + "{\"posted_by\":99,\"message_text\":\"nobody\",\"time_posted_epoch\":1669947794}\r\n"
+                + "{\"posted_by\":1,\"message_text\":\"\",\"time_posted_epoch\":1669947795}\n"
+                + "{\"posted_by\":1,\"message_text\":\"second import\",\"time_posted_epoch\":1669947796}";
+        HttpResponse<String> response = importLines(body);
+
+        Assert.assertEquals(200, response.statusCode());
+        List<Map<String, Object>> results = readResults(response.body());
+        Assert.assertEquals(5, results.size());
+        Assert.assertEquals(Map.of("line", 1, "status", 200, "message_id", 2), results.get(0));
+        Assert.assertEquals(Map.of("line", 3, "status", 400, "error", "Invalid JSON"), results.get(1));
+        Assert.assertEquals(4, results.get(2).get("line"));
+        Assert.assertEquals(400, results.get(2).get("status"));
+        Assert.assertEquals(5, results.get(3).get("line"));
+        Assert.assertEquals(400, results.get(3).get("status"));
+        Assert.assertEquals(Map.of("line", 6, "status", 200, "message_id", 3), results.get(4));
+
+        HttpResponse<String> stored = webClient.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/3")).build(), HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(new Message(3, 1, "second import", 1669947796L),
+                objectMapper.readValue(stored.body(), Message.class));
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages/bulk with more lines than one batch holds
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: every line succeeds with consecutive message IDs, and every message can be read back
+     */
+    @Test
+    public void importSpansSeveralBatches() throws IOException, InterruptedException {
+        int count = 2500;
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            body.append("{\"posted_by\":1,\"message_text\":\"bulk ").append(i)
+                    .append("\",\"time_posted_epoch\":").append(1669947793L + i).append("}\n");
+        }
+        HttpResponse<String> response = importLines(body.toString());
+
+        List<Map<String, Object>> results = readResults(response.body());
+        Assert.assertEquals(count, results.size());
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(Map.of("line", i + 1, "status", 200, "message_id", i + 2), results.get(i));
+        }
+        HttpResponse<String> all = webClient.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages")).build(), HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(count + 1, objectMapper.readValue(all.body(), new TypeReference<List<Message>>() {}).size());
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages/bulk, with api.import.maxErrors set to 2, where the
+     * second and third lines are rejected
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: results up to the second rejection, then one object saying where the import stopped; the
+     *  lines after it are not inserted
+     */
+    @Test
+    public void importStopsAfterMaxErrors() throws IOException, InterruptedException {
+        app.stop();
+        System.setProperty("api.import.maxErrors", "2");
+        try {
+            socialMediaController = new SocialMediaController();
+            app = socialMediaController.startAPI();
+            app.start(8080);
+            Thread.sleep(1000);
+        } finally {
+            System.clearProperty("api.import.maxErrors");
+        }
+        String body = "{\"posted_by\":1,\"message_text\":\"kept\",\"time_posted_epoch\":1669947793}\n"
+                + "not json\n"
+                + "{\"posted_by\":1,\"message_text\":\"\",\"time_posted_epoch\":1669947794}\n"
+                + "{\"posted_by\":1,\"message_text\":\"skipped\",\"time_posted_epoch\":1669947795}\n"
+                + "{\"posted_by\":1,\"message_text\":\"skipped too\",\"time_posted_epoch\":1669947796}\n";
+        HttpResponse<String> response = importLines(body);
+
+        Assert.assertEquals(200, response.statusCode());
+        List<Map<String, Object>> results = readResults(response.body());
+        Assert.assertEquals(4, results.size());
+        Assert.assertEquals(Map.of("line", 1, "status", 200, "message_id", 2), results.get(0));
+        Assert.assertEquals(2, results.get(1).get("line"));
+        Assert.assertEquals(3, results.get(2).get("line"));
+        Assert.assertEquals(4, results.get(3).get("line"));
+        Assert.assertEquals(400, results.get(3).get("status"));
+
+        HttpResponse<String> all = webClient.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages")).build(), HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(2, objectMapper.readValue(all.body(), new TypeReference<List<Message>>() {}).size());
+    }
+
+    private HttpResponse<String> importLines(String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/bulk"))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/x-ndjson")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private List<Map<String, Object>> readResults(String body) throws IOException {
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            results.add(objectMapper.readValue(line, new TypeReference<Map<String, Object>>() {}));
+        }
+        return results;
+    }
+}
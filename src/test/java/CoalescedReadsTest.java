@@ -0,0 +1,81 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Controller.SocialMediaController;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class CoalescedReadsTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient for interacting
+     * locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Sending many concurrent http requests to GET localhost:8080/messages/100, which does not exist and so is
+     * never cached
+     *
+     * Expected Response:
+     *  Status Code: 200 with an empty body for every request, and every request is counted once in /metrics, either
+     *  as a read it ran or as one it shared
+     */
+    @Test
+    public void concurrentReadsAreCountedOnce() throws IOException, InterruptedException {
+        int requests = 50;
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:8080/messages/100")).build();
+        for (int i = 0; i < requests; i++) {
+            responses.add(webClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            Assert.assertEquals(200, response.join().statusCode());
+            Assert.assertEquals("", response.join().body());
+        }
+
+        String metrics = webClient.send(HttpRequest.newBuilder(URI.create("http://localhost:8080/metrics")).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        long loads = counter(metrics, "load");
+        long shared = counter(metrics, "shared");
+        Assert.assertTrue(loads >= 1);
+        Assert.assertEquals(requests, loads + shared);
+    }
+
+    private static long counter(String metrics, String result) {
+        Matcher matcher = Pattern.compile("coalesced_reads_total\\{read=\"message_by_id\",result=\"" + result
+                + "\"} (\\d+)").matcher(metrics);
+        Assert.assertTrue(matcher.find());
+        return Long.parseLong(matcher.group(1));
+    }
+}
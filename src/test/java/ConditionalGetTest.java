@@ -0,0 +1,148 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Controller.SocialMediaController;
+import DAO.MessageDAO;
+import DAO.MessageHandler;
+import DAO.TimelineQuery;
+import Service.AccountService;
+import Service.MessageService;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class ConditionalGetTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient for interacting
+     * locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/1 with the ETag of an earlier response, before and
+     * after the message is updated
+     *
+     * Expected Response:
+     *  Status Code: 304 with an empty body while the message is unchanged, then 200 with the new text and a new ETag
+     */
+    @Test
+    public void messageNotModifiedUntilUpdated() throws IOException, InterruptedException {
+        HttpResponse<String> first = get("/messages/1", null);
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+
+        HttpResponse<String> unchanged = get("/messages/1", etag);
+        Assert.assertEquals(304, unchanged.statusCode());
+        Assert.assertEquals("", unchanged.body());
+        Assert.assertEquals(etag, unchanged.headers().firstValue("ETag").orElseThrow());
+
+        HttpRequest patch = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"message_text\":\"updated message\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(200, webClient.send(patch, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        HttpResponse<String> changed = get("/messages/1", etag);
+        Assert.assertEquals(200, changed.statusCode());
+        Assert.assertTrue(changed.body().contains("updated message"));
+        Assert.assertNotEquals(etag, changed.headers().firstValue("ETag").orElseThrow());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/1/messages with the ETag of an earlier response,
+     * before and after the account posts a message
+     *
+     * Expected Response:
+     *  Status Code: 304 while the timeline is unchanged, then 200 listing the new message
+     */
+    @Test
+    public void timelineNotModifiedUntilPosted() throws IOException, InterruptedException {
+        String etag = get("/accounts/1/messages", null).headers().firstValue("ETag").orElseThrow();
+        Assert.assertEquals(304, get("/accounts/1/messages", "\"other\", " + etag).statusCode());
+
+        HttpRequest post = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"posted_by\":1,\"message_text\":\"new post\",\"time_posted_epoch\":1669947793}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(200, webClient.send(post, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        HttpResponse<String> changed = get("/accounts/1/messages", etag);
+        Assert.assertEquals(200, changed.statusCode());
+        Assert.assertTrue(changed.body().contains("new post"));
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/1/messages with an invalid limit
+     *
+     * Expected Response:
+     *  Status Code: 400 with no ETag, since the error says nothing about the timeline's version
+     */
+    @Test
+    public void invalidTimelineRequestHasNoEtag() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/accounts/1/messages?limit=0", null);
+
+        Assert.assertEquals(400, response.statusCode());
+        Assert.assertTrue(response.headers().firstValue("ETag").isEmpty());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/1/messages?limit=10 when the timeline query fails
+     *
+     * Expected Response:
+     *  Status Code: 400 with no ETag, so a client cannot later revalidate the error as if it were the timeline
+     */
+    @Test
+    public void failedTimelineRequestHasNoEtag() throws IOException, InterruptedException {
+        app.stop();
+        socialMediaController = new SocialMediaController(new AccountService(), new MessageService(new MessageDAO() {
+            @Override
+            public void streamMessagesByUserId(TimelineQuery query, MessageHandler handler) throws SQLException {
+                throw new SQLException("query failed");
+            }
+        }));
+        app = socialMediaController.startAPI();
+        app.start(8080);
+        Thread.sleep(1000);
+
+        HttpResponse<String> response = get("/accounts/1/messages?limit=10", null);
+
+        Assert.assertEquals(400, response.statusCode());
+        Assert.assertTrue(response.headers().firstValue("ETag").isEmpty());
+    }
+
+    private HttpResponse<String> get(String path, String ifNoneMatch) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080" + path));
+        if (ifNoneMatch != null) {
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        return webClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,275 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Util.ConnectionPool;
+import Util.PoolStats;
+
+public class ConnectionPoolTest {
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    JdbcDataSource dataSource;
+    ConnectionPool pool;
+
+    /**
+     * Before every test, point a data source at a fresh in-memory database. Each test builds its own pool.
+     */
+    @Before
+    public void setUp() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:pool" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1");
+    }
+
+    @After
+    public void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    /**
+     * Borrowing from a pool of one while its only connection is out, then again once a waiter is queued
+     *
+     * Expected:
+     *  The first extra borrow fails after the acquire timeout and is counted; a waiter gets the connection as soon
+     *  as it is returned
+     */
+    @Test
+    public void borrowTimesOutWhenExhausted() throws Exception {
+        pool = new ConnectionPool(dataSource, 0, 1, 100, 0, 0);
+        Connection held = pool.getConnection();
+
+        long start = System.nanoTime();
+        try {
+            pool.getConnection();
+            Assert.fail("Expected the borrow to time out.");
+        } catch (SQLException e) {
+            Assert.assertTrue(e.getMessage().contains("Timed out"));
+        }
+        Assert.assertTrue(System.nanoTime() - start >= 90_000_000L);
+        Assert.assertEquals(1, pool.getStats().getTimeouts());
+
+        pool = reopen(new ConnectionPool(dataSource, 0, 1, 5000, 0, 0));
+        held = pool.getConnection();
+        Connection[] borrowed = new Connection[1];
+        Thread waiter = new Thread(() -> {
+            try {
+                borrowed[0] = pool.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        waiter.start();
+        awaitStat(() -> pool.getStats().getWaiters() == 1);
+        held.close();
+        waiter.join();
+
+        Assert.assertNotNull(borrowed[0]);
+        Assert.assertEquals(0, pool.getStats().getWaiters());
+        Assert.assertEquals(0, pool.getStats().getTimeouts());
+        borrowed[0].close();
+    }
+
+    /**
+     * Warming up pools with various minimum and maximum sizes, then borrowing up to the maximum
+     *
+     * Expected:
+     *  Warm-up opens minSize connections, a minimum above the maximum is capped, borrowing never opens more than
+     *  maxSize, and a maximum below 1 is rejected
+     */
+    @Test
+    public void sizesStayWithinMinAndMax() throws Exception {
+        pool = new ConnectionPool(dataSource, 2, 3, 100, 0, 0);
+        pool.warmUp();
+        PoolStats stats = pool.getStats();
+        Assert.assertEquals(2, stats.getTotal());
+        Assert.assertEquals(2, stats.getIdle());
+        Assert.assertEquals(0, stats.getActive());
+
+        Connection a = pool.getConnection();
+        Connection b = pool.getConnection();
+        Connection c = pool.getConnection();
+        stats = pool.getStats();
+        Assert.assertEquals(3, stats.getTotal());
+        Assert.assertEquals(3, stats.getActive());
+        Assert.assertEquals(0, stats.getIdle());
+        Assert.assertEquals(3, stats.getCreated());
+        try {
+            pool.getConnection();
+            Assert.fail("Expected the borrow to time out.");
+        } catch (SQLException expected) {
+        }
+        a.close();
+        b.close();
+        c.close();
+        Assert.assertEquals(3, pool.getStats().getIdle());
+
+        pool = reopen(new ConnectionPool(dataSource, 5, 2, 100, 0, 0));
+        pool.warmUp();
+        Assert.assertEquals(2, pool.getStats().getTotal());
+
+        try {
+            new ConnectionPool(dataSource, 0, 0, 100, 0, 0);
+            Assert.fail("Expected a max size of 0 to be rejected.");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    /**
+     * Closing an idle connection's physical connection behind the pool's back, then borrowing
+     *
+     * Expected:
+     *  The broken connection fails validation and is destroyed, and the borrower gets a new, working one
+     */
+    @Test
+    public void brokenIdleConnectionIsReplaced() throws Exception {
+        // Every idle connection is validated before reuse
+        pool = new ConnectionPool(dataSource, 1, 1, 100, 0, 0);
+        Connection physical;
+        try (Connection connection = pool.getConnection()) {
+            physical = connection.unwrap(Connection.class);
+        }
+        physical.close();
+
+        try (Connection connection = pool.getConnection()) {
+            Assert.assertEquals(1, selectOne(connection));
+        }
+        PoolStats stats = pool.getStats();
+        Assert.assertEquals(2, stats.getCreated());
+        Assert.assertEquals(1, stats.getDestroyed());
+        Assert.assertEquals(1, stats.getTotal());
+    }
+
+    /**
+     * Returning three connections to a pool with minSize 1 and a 100 ms idle timeout, then waiting
+     *
+     * Expected:
+     *  The evictor closes the two extra connections and keeps the minimum open
+     */
+    @Test
+    public void idleConnectionsAreEvictedDownToMin() throws Exception {
+        pool = new ConnectionPool(dataSource, 1, 3, 100, 100, 0);
+        Connection a = pool.getConnection();
+        Connection b = pool.getConnection();
+        Connection c = pool.getConnection();
+        a.close();
+        b.close();
+        c.close();
+        Assert.assertEquals(3, pool.getStats().getIdle());
+
+        awaitStat(() -> pool.getStats().getTotal() == 1);
+        PoolStats stats = pool.getStats();
+        Assert.assertEquals(1, stats.getIdle());
+        Assert.assertEquals(2, stats.getDestroyed());
+        Assert.assertEquals(3, stats.getCreated());
+    }
+
+    /**
+     * Returning a connection with autocommit off and an insert not yet committed, then borrowing it again
+     *
+     * Expected:
+     *  The insert was rolled back, autocommit is on again, and the returned proxy refuses further use
+     */
+    @Test
+    public void releaseRollsBackAndRestoresAutoCommit() throws Exception {
+        pool = new ConnectionPool(dataSource, 0, 1, 100, 0, 0);
+        Connection first = pool.getConnection();
+        try (Statement statement = first.createStatement()) {
+            statement.execute("create table item (id int)");
+        }
+        first.setAutoCommit(false);
+        try (Statement statement = first.createStatement()) {
+            statement.executeUpdate("insert into item values (1)");
+        }
+        first.close();
+
+        Assert.assertTrue(first.isClosed());
+        try {
+            first.createStatement();
+            Assert.fail("Expected a returned connection to be unusable.");
+        } catch (SQLException expected) {
+        }
+        try (Connection second = pool.getConnection();
+             Statement statement = second.createStatement();
+             ResultSet rows = statement.executeQuery("select count(*) from item")) {
+            Assert.assertTrue(second.getAutoCommit());
+            Assert.assertTrue(rows.next());
+            Assert.assertEquals(0, rows.getInt(1));
+        }
+        Assert.assertEquals(1, pool.getStats().getCreated());
+    }
+
+    /**
+     * Borrowing and returning connections, with one borrow timing out
+     *
+     * Expected:
+     *  PoolStats reports the active, idle and total connections, the maximum size, the connections created, the
+     *  timeout and one acquire time per successful borrow
+     */
+    @Test
+    public void statsCountBorrowsAndConnections() throws Exception {
+        pool = new ConnectionPool(dataSource, 0, 2, 50, 0, 60000);
+        Connection a = pool.getConnection();
+        Connection b = pool.getConnection();
+        PoolStats stats = pool.getStats();
+        Assert.assertEquals(2, stats.getActive());
+        Assert.assertEquals(0, stats.getIdle());
+        Assert.assertEquals(2, stats.getTotal());
+        Assert.assertEquals(2, stats.getMaxSize());
+        try {
+            pool.getConnection();
+            Assert.fail("Expected the borrow to time out.");
+        } catch (SQLException expected) {
+        }
+        a.close();
+        // Closing twice returns the connection once
+        a.close();
+        Connection c = pool.getConnection();
+
+        stats = pool.getStats();
+        Assert.assertEquals(2, stats.getActive());
+        Assert.assertEquals(0, stats.getIdle());
+        Assert.assertEquals(2, stats.getTotal());
+        Assert.assertEquals(2, stats.getCreated());
+        Assert.assertEquals(0, stats.getDestroyed());
+        Assert.assertEquals(1, stats.getTimeouts());
+        Assert.assertEquals(3, stats.getAcquireTimes().getCount());
+
+        b.close();
+        c.close();
+        pool.close();
+        stats = pool.getStats();
+        Assert.assertEquals(0, stats.getTotal());
+        Assert.assertEquals(2, stats.getDestroyed());
+    }
+
+    private ConnectionPool reopen(ConnectionPool next) {
+        pool.close();
+        return next;
+    }
+
+    private static int selectOne(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("select 1")) {
+            rows.next();
+            return rows.getInt(1);
+        }
+    }
+
+    private static void awaitStat(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("Timed out waiting for the pool", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import DAO.InMemoryAccountStore;
+import DAO.InMemoryMessageStore;
+import Model.Account;
+import Model.Message;
+import Service.MessageService;
+
+public class EtagOrderingTest {
+    private static final int WRITES = 20000;
+    private static final int READERS = 4;
+    private static final Pattern VERSION = Pattern.compile("v(\\d+)");
+
+    MessageService messageService;
+
+    /**
+     * Before every test, create an in-memory store holding one account with one message, "v0", behind a service.
+     */
+    @Before
+    public void setUp() throws Exception {
+        InMemoryAccountStore accountStore = new InMemoryAccountStore();
+        accountStore.createAccount(new Account("writer", "password"));
+        messageService = new MessageService(new InMemoryMessageStore(accountStore));
+        messageService.postMessage(new Message(1, "v0", 1669947792L));
+    }
+
+    /**
+     * Updating a message over and over while other threads read its ETag and then the message, as GET
+     * /messages/{message_id} does, with the cache warm between writes
+     *
+     * Expected:
+     *  No reader pairs an ETag with a body older than the write that ETag stands for
+     */
+    @Test
+    public void messageEtagNeverOutrunsBody() throws Exception {
+        assertNeverStale(() -> messageService.getMessageEtag(1),
+                () -> version(messageService.getMessageById(1).getMessage_text()));
+    }
+
+    /**
+     * Updating a message over and over while other threads read its account's timeline ETag and then the cached
+     * timeline JSON, as GET /accounts/{account_id}/messages does
+     *
+     * Expected:
+     *  No reader pairs an ETag with a timeline older than the write that ETag stands for
+     */
+    @Test
+    public void timelineEtagNeverOutrunsBody() throws Exception {
+        assertNeverStale(() -> messageService.getTimelineEtag(1),
+                () -> version(new String(messageService.getTimelineJson(1), StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Updates message 1 to "v1", "v2" and so on while READERS threads read an ETag and then a body. Fails if a
+     * reader saw the ETag the writer saw after write k together with a body from before write k.
+     */
+    private void assertNeverStale(Supplier<String> etag, Callable<Integer> body) throws Exception {
+        // The ETag each write left behind, read by the writer once the write had returned
+        Map<String, Integer> etagAfterWrite = new ConcurrentHashMap<>();
+        List<String> stale = Collections.synchronizedList(new ArrayList<>());
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            Thread reader = new Thread(() -> {
+                try {
+                    while (writing.get()) {
+                        String seen = etag.get();
+                        int version = body.call();
+                        Integer written = etagAfterWrite.get(seen);
+                        if (written != null && version < written) {
+                            stale.add(seen + " with v" + version);
+                        }
+                    }
+                } catch (Exception e) {
+                    stale.add(e.toString());
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        try {
+            for (int k = 1; k <= WRITES; k++) {
+                messageService.updateMessageText(1, "v" + k);
+                etagAfterWrite.put(etag.get(), k);
+            }
+        } finally {
+            writing.set(false);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+        }
+        Assert.assertEquals(List.of(), stale);
+    }
+
+    // The k in "vk", found in a bare message text or in a serialized timeline
+    private static int version(String text) {
+        Matcher matcher = VERSION.matcher(text);
+        Assert.assertTrue(matcher.find());
+        return Integer.parseInt(matcher.group(1));
+    }
+}
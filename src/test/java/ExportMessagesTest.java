@@ -0,0 +1,181 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import DAO.MessageDAO;
+import DAO.MessageHandler;
+import Model.Message;
+import Service.AccountService;
+import Service.MessageService;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class ExportMessagesTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/export?after=1669947792 after posting two messages
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the two new messages as NDJSON, one per line in message_id order; the seeded message is
+     *  posted at exactly 1669947792 and so is left out
+     */
+    @Test
+    public void exportNdjsonWithinRange() throws IOException, InterruptedException {
+        postMessage("first export", 1669947793L);
+        postMessage("second export", 1669947794L);
+
+        HttpResponse<String> response = export("?after=1669947792");
+
+        Assert.assertEquals(200, response.statusCode());
+        String[] lines = response.body().split("\n");
+        Assert.assertEquals(2, lines.length);
+        Assert.assertEquals(new Message(2, 1, "first export", 1669947793L),
+                objectMapper.readValue(lines[0], Message.class));
+        Assert.assertEquals(new Message(3, 1, "second export", 1669947794L),
+                objectMapper.readValue(lines[1], Message.class));
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/export?format=csv
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: a header row and one row per message, with message_text quoted where it needs to be
+     */
+    @Test
+    public void exportCsvQuotesText() throws IOException, InterruptedException {
+        postMessage("one, \"two\"", 1669947793L);
+
+        HttpResponse<String> response = export("?format=csv");
+
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertEquals("message_id,posted_by,message_text,time_posted_epoch\r\n"
+                + "1,1,test message 1,1669947792\r\n"
+                + "2,1,\"one, \"\"two\"\"\",1669947793\r\n", response.body());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/export with an unknown format or an empty range
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void exportRejectsBadParameters() throws IOException, InterruptedException {
+        Assert.assertEquals(400, export("?format=xml").statusCode());
+        Assert.assertEquals(400, export("?after=10&before=5").statusCode());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/export when the query fails before returning a row
+     *
+     * Expected Response:
+     *  Status Code: 500
+     *  Response Body: the error, not an empty export
+     */
+    @Test
+    public void exportFailingBeforeFirstRowReturns500() throws IOException, InterruptedException {
+        restartWith(new MessageDAO() {
+            @Override
+            public void streamMessagesPostedBetween(Long after, Long before, MessageHandler handler)
+                    throws SQLException {
+                throw new SQLException("query failed");
+            }
+        });
+
+        HttpResponse<String> response = export("");
+
+        Assert.assertEquals(500, response.statusCode());
+        Assert.assertEquals("Internal server error: query failed", response.body());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/export when the query fails after returning a row
+     *
+     * Expected Response:
+     *  The connection is dropped, so the client cannot mistake the partial export for a complete one
+     */
+    @Test
+    public void exportFailingAfterFirstRowIsCutOff() throws InterruptedException {
+        restartWith(new MessageDAO() {
+            @Override
+            public void streamMessagesPostedBetween(Long after, Long before, MessageHandler handler)
+                    throws SQLException, IOException {
+                handler.handle(new Message(1, 1, "test message 1", 1669947792L));
+                throw new SQLException("query failed");
+            }
+        });
+
+        try {
+            export("");
+            Assert.fail("The partial export should not arrive as a complete response.");
+        } catch (IOException e) {
+            // Expected: the response ended without its final chunk
+        }
+    }
+
+    /**
+     * Restarts the app on the database, but with messages read through the given store.
+     */
+    private void restartWith(MessageDAO messageStore) throws InterruptedException {
+        app.stop();
+        socialMediaController = new SocialMediaController(new AccountService(), new MessageService(messageStore));
+        app = socialMediaController.startAPI();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    private void postMessage(String text, long epoch) throws IOException, InterruptedException {
+        String body = objectMapper.writeValueAsString(new Message(1, text, epoch));
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(200, webClient.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    private HttpResponse<String> export(String query) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/export" + query))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,81 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import DAO.GroupCommitQueue;
+
+public class GroupCommitQueueTest {
+    /**
+     * A batch holding one bad row fails as a whole, then every row is retried alone: the bad row fails its own
+     * caller and the rows around it are still written.
+     */
+    @Test
+    public void failedBatchIsolatesBadRow() throws Exception {
+        List<List<String>> writes = Collections.synchronizedList(new ArrayList<>());
+        // A long linger gathers all three rows into the first batch
+        GroupCommitQueue<String> queue = new GroupCommitQueue<>("test", rows -> {
+            writes.add(new ArrayList<>(rows));
+            if (rows.contains("bad")) {
+                throw new SQLException("bad row");
+            }
+        }, 3, 1_000_000);
+        try {
+            CompletableFuture<String> first = queue.submit("first");
+            CompletableFuture<String> bad = queue.submit("bad");
+            CompletableFuture<String> last = queue.submit("last");
+
+            Assert.assertEquals("first", first.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals("last", last.get(5, TimeUnit.SECONDS));
+            try {
+                bad.get(5, TimeUnit.SECONDS);
+                Assert.fail("The bad row should fail.");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof SQLException);
+            }
+            Assert.assertEquals(List.of(List.of("first", "bad", "last"), List.of("first"), List.of("bad"),
+                    List.of("last")), writes);
+        } finally {
+            queue.shutdown();
+        }
+    }
+
+    /**
+     * Rows queued before shutdown() are still written, even while a batch is in progress; rows submitted after it
+     * fail straight away.
+     */
+    @Test
+    public void shutdownDrainsQueuedRows() throws Exception {
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        Semaphore release = new Semaphore(0);
+        GroupCommitQueue<String> queue = new GroupCommitQueue<>("test", rows -> {
+            // The first batch waits until the test has queued more rows and shut down
+            if (written.isEmpty()) {
+                release.acquireUninterruptibly();
+            }
+            written.addAll(rows);
+        }, 1, 0);
+
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(queue.submit("row" + i));
+        }
+        queue.shutdown();
+        CompletableFuture<String> late = queue.submit("late");
+        release.release();
+
+        for (CompletableFuture<String> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        Assert.assertEquals(List.of("row0", "row1", "row2", "row3", "row4"), written);
+        Assert.assertTrue(late.isCompletedExceptionally());
+        Assert.assertTrue(queue.awaitTermination(5000));
+    }
+}
@@ -0,0 +1,105 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class JsonBodyHandlingTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Sending an http request to PATCH localhost:8080/messages/1 with extra fields around message_text
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: JSON representation of the updated message; the other fields are ignored
+     */
+    @Test
+    public void updateMessageIgnoresOtherFields() throws IOException, InterruptedException {
+        HttpResponse<String> response = patch("/messages/1",
+                "{\"posted_by\": 99, \"tags\": [\"a\", {\"b\": 1}], \"message_text\": \"updated message\"}");
+
+        Assert.assertEquals(200, response.statusCode());
+        Message actualResult = objectMapper.readValue(response.body(), Message.class);
+        Assert.assertEquals(new Message(1, 1, "updated message", 1669947792), actualResult);
+    }
+
+    /**
+     * Sending an http request to PATCH localhost:8080/messages/1 with a body that is not valid JSON
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void updateMessageMalformedJson() throws IOException, InterruptedException {
+        HttpResponse<String> response = patch("/messages/1", "{\"message_text\": \"updated message\"");
+
+        Assert.assertEquals(400, response.statusCode());
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/register with a field the Account model does not have
+     *
+     * Expected Response:
+     *  Status Code: 400
+     *  Response Body:
+     */
+    @Test
+    public void registerUserUnknownField() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/register"))
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"username\": \"user\", \"password\": \"password\", \"email\": \"user@example.com\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+
+        Assert.assertEquals(400, response.statusCode());
+        Assert.assertEquals("", response.body());
+    }
+
+    private HttpResponse<String> patch(String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,195 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import DAO.LogMessageStore;
+import Model.Message;
+
+public class LogMessageStoreTest {
+    // The smallest segment that holds the largest record, rounded up; three long messages fit in one
+    private static final int SEGMENT_BYTES = 1024;
+    private static final String LONG_TEXT = "x".repeat(255);
+
+    Path logDirectory;
+    LogMessageStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        logDirectory = Files.createTempDirectory("message-log");
+        store = open();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        store.close();
+        try (Stream<Path> files = Files.walk(logDirectory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Creating, updating and deleting messages, then reopening the log
+     *
+     * Expected:
+     *  The replayed index holds the latest version of every live message, and new messages get fresh IDs
+     */
+    @Test
+    public void replayRestoresMessages() throws Exception {
+        store.createMessage(new Message(1, "kept", 1669947793L));
+        store.createMessage(new Message(1, "draft", 1669947794L));
+        store.createMessage(new Message(2, "deleted", 1669947795L));
+        store.updateMessageText(2, "edited");
+        store.deleteMessage(3);
+
+        reopen();
+
+        Assert.assertEquals(List.of(new Message(1, 1, "kept", 1669947793L),
+                new Message(2, 1, "edited", 1669947794L)), store.getAllMessages());
+        Assert.assertEquals(4, store.createMessage(new Message(1, "after", 1669947796L)).getMessage_id());
+    }
+
+    /**
+     * Damaging the last record in a segment, as a crash in the middle of a write would, then reopening the log
+     *
+     * Expected:
+     *  Replay stops at the damaged record, and a new write takes its place and survives the next reopen
+     */
+    @Test
+    public void replayStopsAtTornRecord() throws Exception {
+        store.createMessage(new Message(1, "first", 1669947793L));
+        store.createMessage(new Message(1, "second", 1669947794L));
+        store.close();
+        // The second record starts after the first one's 25-byte header, 5 bytes of text and 4-byte checksum
+        try (FileChannel channel = FileChannel.open(segment(1), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'?'}), 34 + 25);
+        }
+        store = open();
+
+        Assert.assertEquals(1, store.size());
+        Assert.assertNull(store.getMessageById(2));
+        Assert.assertEquals(2, store.createMessage(new Message(1, "after crash", 1669947795L)).getMessage_id());
+
+        reopen();
+
+        Assert.assertEquals(List.of(new Message(1, 1, "first", 1669947793L),
+                new Message(2, 1, "after crash", 1669947795L)), store.getAllMessages());
+    }
+
+    /**
+     * Compacting a segment of tombstones while the segment holding one of the deleted records is kept
+     *
+     * Expected:
+     *  The tombstones are copied forward, so the deleted message stays deleted after reopening
+     */
+    @Test
+    public void tombstonesSurviveCompaction() throws Exception {
+        // Segment 1: messages 1-3, of which only 2 is deleted, so it stays above the compaction threshold
+        for (int i = 0; i < 3; i++) {
+            store.createMessage(new Message(1, LONG_TEXT, 1669947793L + i));
+        }
+        // Segment 2: messages 4-6 and the tombstones for 2, 4, 5 and 6, so nothing in it is live
+        store.createMessage(new Message(1, LONG_TEXT, 1669947796L));
+        store.deleteMessage(2);
+        store.deleteMessage(4);
+        store.createMessage(new Message(1, LONG_TEXT, 1669947797L));
+        store.createMessage(new Message(1, LONG_TEXT, 1669947798L));
+        store.deleteMessage(5);
+        store.deleteMessage(6);
+        // Segment 3 becomes the active one
+        store.createMessage(new Message(1, LONG_TEXT, 1669947799L));
+        Assert.assertEquals(3, store.getSegmentCount());
+
+        Assert.assertEquals(1, store.compact());
+        Assert.assertEquals(2, store.getSegmentCount());
+
+        reopen();
+
+        Assert.assertEquals(List.of(1, 3, 7), ids(store.getAllMessages()));
+        Assert.assertNull(store.getMessageById(2));
+    }
+
+    /**
+     * Compacting a mostly deleted segment, then reopening the log
+     *
+     * Expected:
+     *  The live record copied out of the compacted segment is replayed with its latest text, and IDs carry on
+     */
+    @Test
+    public void reopenAfterCompaction() throws Exception {
+        // Segment 1: three long messages, then an edit and two deletes leave only a short record live
+        for (int i = 0; i < 3; i++) {
+            store.createMessage(new Message(1, LONG_TEXT, 1669947793L + i));
+        }
+        store.updateMessageText(1, "edited");
+        store.deleteMessage(2);
+        store.deleteMessage(3);
+        store.createMessage(new Message(2, LONG_TEXT, 1669947796L));
+        Assert.assertEquals(2, store.getSegmentCount());
+
+        Assert.assertEquals(1, store.compact());
+        Assert.assertEquals(1, store.getSegmentCount());
+        Assert.assertFalse(Files.exists(segment(1)));
+
+        reopen();
+
+        Assert.assertEquals(List.of(new Message(1, 1, "edited", 1669947793L),
+                new Message(4, 2, LONG_TEXT, 1669947796L)), store.getAllMessages());
+        Assert.assertEquals(5, store.createMessage(new Message(1, "after", 1669947797L)).getMessage_id());
+    }
+
+    /**
+     * Creating a batch too large for one segment
+     *
+     * Expected:
+     *  The batch rolls into as many segments as it needs, gets consecutive IDs and is replayed whole
+     */
+    @Test
+    public void batchSpansSegments() throws Exception {
+        List<Message> batch = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            batch.add(new Message(1, LONG_TEXT, 1669947793L + i));
+        }
+        store.createMessages(batch);
+        Assert.assertEquals(4, store.getSegmentCount());
+        Assert.assertEquals(10, batch.get(9).getMessage_id());
+
+        reopen();
+
+        Assert.assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), ids(store.getAllMessages()));
+        Assert.assertEquals(4, store.getSegmentCount());
+    }
+
+    private LogMessageStore open() throws IOException {
+        // Compaction only runs when a test calls compact()
+        return new LogMessageStore(logDirectory, SEGMENT_BYTES, false, 0.5, 0);
+    }
+
+    private void reopen() throws IOException {
+        store.close();
+        store = open();
+    }
+
+    private Path segment(int id) {
+        return logDirectory.resolve(String.format("segment-%010d.log", id));
+    }
+
+    private static List<Integer> ids(List<Message> messages) {
+        List<Integer> ids = new ArrayList<>();
+        for (Message message : messages) {
+            ids.add(message.getMessage_id());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,135 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import DAO.StorageEngine;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class MemoryEngineRestartTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+    Path journalDirectory;
+
+    /**
+     * Before every test, reset the database, start the Javalin app on a journaled in-memory engine, and create a
+     * new webClient and ObjectMapper for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException, IOException {
+        ConnectionUtil.resetTestDatabase();
+        journalDirectory = Files.createTempDirectory("memory-journal");
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        app.stop();
+        try (Stream<Path> files = Files.walk(journalDirectory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Registering an account, posting, updating and deleting messages, then restarting on an empty database
+     *
+     * Expected Response:
+     *  The account and messages are restored from the journal, not the database, and new messages get fresh IDs
+     */
+    @Test
+    public void restartRestoresAccountsAndMessages() throws IOException, InterruptedException {
+        Assert.assertEquals(200, send("POST", "/register", "{\"username\":\"restart\",\"password\":\"password\"}")
+                .statusCode());
+        send("POST", "/messages", "{\"posted_by\":2,\"message_text\":\"kept\",\"time_posted_epoch\":1669947793}");
+        send("POST", "/messages", "{\"posted_by\":2,\"message_text\":\"draft\",\"time_posted_epoch\":1669947794}");
+        send("PATCH", "/messages/3", "{\"message_text\":\"edited\"}");
+        send("DELETE", "/messages/1", null);
+
+        // Whatever comes back after this can only have come from the journal
+        ConnectionUtil.resetTestDatabase();
+        restart();
+
+        List<Message> messages = objectMapper.readValue(send("GET", "/messages", null).body(),
+                new TypeReference<List<Message>>() {});
+        Assert.assertEquals(List.of(new Message(2, 2, "kept", 1669947793L),
+                new Message(3, 2, "edited", 1669947794L)), messages);
+        Assert.assertEquals(200, send("POST", "/login", "{\"username\":\"restart\",\"password\":\"password\"}")
+                .statusCode());
+        Message created = objectMapper.readValue(send("POST", "/messages",
+                "{\"posted_by\":2,\"message_text\":\"after\",\"time_posted_epoch\":1669947795}").body(), Message.class);
+        Assert.assertEquals(4, created.getMessage_id());
+    }
+
+    /**
+     * Appending half a record to the write-ahead log, as a crash in the middle of a write would, then restarting
+     *
+     * Expected Response:
+     *  Every complete change is restored, the partial one is ignored and new writes still work
+     */
+    @Test
+    public void restartIgnoresTornLogTail() throws IOException, InterruptedException {
+        send("POST", "/messages", "{\"posted_by\":1,\"message_text\":\"before crash\",\"time_posted_epoch\":1669947793}");
+        app.stop();
+        try (DirectoryStream<Path> logs = Files.newDirectoryStream(journalDirectory, "wal-*.log")) {
+            for (Path log : logs) {
+                // A frame header promising 100 bytes, followed by only three of them
+                Files.write(log, new byte[]{0, 0, 0, 100, 2, 0, 0}, StandardOpenOption.APPEND);
+            }
+        }
+        start();
+
+        HttpResponse<String> response = send("GET", "/messages/2", null);
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertEquals("before crash", objectMapper.readValue(response.body(), Message.class).getMessage_text());
+        Assert.assertEquals(200, send("POST", "/messages",
+                "{\"posted_by\":1,\"message_text\":\"after crash\",\"time_posted_epoch\":1669947794}").statusCode());
+        Assert.assertEquals(3, objectMapper.readValue(send("GET", "/messages", null).body(),
+                new TypeReference<List<Message>>() {}).size());
+    }
+
+    private void start() throws InterruptedException {
+        socialMediaController = new SocialMediaController(StorageEngine.memory(true, journalDirectory));
+        app = socialMediaController.startAPI();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    private void restart() throws InterruptedException {
+        // Stopping the server closes the engine, and with it the journal
+        app.stop();
+        start();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,96 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Controller.SocialMediaController;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class MetricsEndpointTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient for interacting
+     * locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/messages/1 twice, then GET localhost:8080/metrics
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: Prometheus text with a request count, status count and latency summary for the route, and
+     *  timers for the SQL statement it ran
+     */
+    @Test
+    public void metricsCountRequestsPerRoute() throws IOException, InterruptedException {
+        get("/messages/1");
+        get("/messages/1");
+        // A route with a path parameter is counted under its pattern, not the concrete path
+        get("/messages/2");
+
+        HttpResponse<String> response = get("/metrics");
+        String body = response.body();
+
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+        Assert.assertTrue(body, body.contains(
+                "http_requests_total{method=\"GET\",route=\"/messages/{message_id}\",status=\"200\"} 3"));
+        Assert.assertTrue(body, body.contains(
+                "http_request_duration_seconds_count{method=\"GET\",route=\"/messages/{message_id}\"} 3"));
+        Assert.assertTrue(body, body.contains(
+                "http_request_duration_seconds{method=\"GET\",route=\"/messages/{message_id}\",quantile=\"0.99\"}"));
+        Assert.assertTrue(body, body.contains("db_statement_duration_seconds_count{statement=\"message_select_by_id\"}"));
+        Assert.assertTrue(body, body.contains("db_pool_connections{state=\"active\"}"));
+        // The scrape itself is still in flight while the body is rendered
+        Assert.assertTrue(body, body.contains("http_requests_in_flight{method=\"GET\",route=\"/metrics\"} 1"));
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/nowhere, then GET localhost:8080/metrics
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the 404 is counted under the unmatched route
+     */
+    @Test
+    public void metricsCountUnmatchedRequests() throws IOException, InterruptedException {
+        Assert.assertEquals(404, get("/nowhere").statusCode());
+
+        String body = get("/metrics").body();
+
+        Assert.assertTrue(body, body.contains(
+                "http_requests_total{method=\"ANY\",route=\"unmatched\",status=\"404\"} 1"));
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -3,9 +3,6 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -99,15 +96,16 @@ public class RetrieveAllMessagesTest {
 
 
 
-    private void removeInitialMessage(){
-        try {
-                Connection conn = ConnectionUtil.getConnection();
-                PreparedStatement ps = conn.prepareStatement("delete from message where message_id = ?");
-                ps.setInt(1, 1);
-                ps.executeUpdate();
-        } catch (SQLException e) {
-                e.printStackTrace();
-        }
+    /**
+     * Deletes the seeded message through the API rather than with SQL, so the test holds on every storage engine.
+     */
+    private void removeInitialMessage() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .DELETE()
+                .build();
+        HttpResponse response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
     }
 
 }
@@ -0,0 +1,154 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class RetrieveMessagesForUserWindowTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/1/messages?limit=2 (3 messages exist for user)
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: JSON list of the 2 newest messages, newest first
+     */
+    @Test
+    public void getMessagesFromUserLatestWithLimit() throws IOException, InterruptedException {
+        postMessage("second message", 1669947793);
+        postMessage("third message", 1669947794);
+
+        HttpResponse<String> response = get("http://localhost:8080/accounts/1/messages?limit=2");
+        Assert.assertEquals(200, response.statusCode());
+
+        List<Message> expectedResult = new ArrayList<>();
+        expectedResult.add(new Message(3, 1, "third message", 1669947794));
+        expectedResult.add(new Message(2, 1, "second message", 1669947793));
+        List<Message> actualResult = objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){});
+        Assert.assertEquals(expectedResult, actualResult);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/1/messages?before=1669947794&after=1669947792
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: JSON list holding only the message posted strictly inside the window
+     */
+    @Test
+    public void getMessagesFromUserInsideWindow() throws IOException, InterruptedException {
+        postMessage("second message", 1669947793);
+        postMessage("third message", 1669947794);
+
+        HttpResponse<String> response = get(
+                "http://localhost:8080/accounts/1/messages?before=1669947794&after=1669947792");
+        Assert.assertEquals(200, response.statusCode());
+
+        List<Message> expectedResult = new ArrayList<>();
+        expectedResult.add(new Message(2, 1, "second message", 1669947793));
+        List<Message> actualResult = objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){});
+        Assert.assertEquals(expectedResult, actualResult);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/1/messages?limit=abc
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void getMessagesFromUserInvalidLimit() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("http://localhost:8080/accounts/1/messages?limit=abc");
+        Assert.assertEquals(400, response.statusCode());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/1/messages?limit=0
+     *
+     * Expected Response:
+     *  Status Code: 400
+     *  Response Body: only the error text, with no part of a JSON array in front of it
+     */
+    @Test
+    public void getMessagesFromUserLimitOutOfRange() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("http://localhost:8080/accounts/1/messages?limit=0");
+        Assert.assertEquals(400, response.statusCode());
+        Assert.assertEquals("Failed to retrieve messages: Limit must be between 1 and 1000.", response.body());
+        Assert.assertFalse(response.headers().firstValue("Content-Type").orElse("").contains("json"));
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/1/messages?after=1669947794&before=1669947794
+     *
+     * Expected Response:
+     *  Status Code: 400
+     *  Response Body: only the error text, with no part of a JSON array in front of it
+     */
+    @Test
+    public void getMessagesFromUserEmptyWindow() throws IOException, InterruptedException {
+        HttpResponse<String> response = get(
+                "http://localhost:8080/accounts/1/messages?after=1669947794&before=1669947794");
+        Assert.assertEquals(400, response.statusCode());
+        Assert.assertEquals("Failed to retrieve messages: after must be earlier than before.", response.body());
+    }
+
+    private HttpResponse<String> get(String uri) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(uri))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void postMessage(String text, long timePostedEpoch) throws IOException, InterruptedException {
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{" +
+                        "\"posted_by\":1, " +
+                        "\"message_text\": \"" + text + "\", " +
+                        "\"time_posted_epoch\": " + timePostedEpoch + "}"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+    }
+}
@@ -0,0 +1,110 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Model.MessagePage;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class RetrieveMessagesPageTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/messages?limit=2 and following next_cursor (3 messages exist)
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: a page of 2 messages with a next_cursor, then a page of 1 message without one
+     */
+    @Test
+    public void getMessagesPageFollowCursor() throws IOException, InterruptedException {
+        postMessage("second message", 1669947793);
+        postMessage("third message", 1669947794);
+
+        HttpResponse<String> firstResponse = get("http://localhost:8080/messages?limit=2");
+        Assert.assertEquals(200, firstResponse.statusCode());
+        MessagePage firstPage = objectMapper.readValue(firstResponse.body(), MessagePage.class);
+        List<Message> expectedFirst = new ArrayList<>();
+        expectedFirst.add(new Message(1, 1, "test message 1", 1669947792));
+        expectedFirst.add(new Message(2, 1, "second message", 1669947793));
+        Assert.assertEquals(expectedFirst, firstPage.getMessages());
+        Assert.assertNotNull(firstPage.getNext_cursor());
+
+        HttpResponse<String> secondResponse = get("http://localhost:8080" + firstPage.getNext());
+        Assert.assertEquals(200, secondResponse.statusCode());
+        MessagePage secondPage = objectMapper.readValue(secondResponse.body(), MessagePage.class);
+        List<Message> expectedSecond = new ArrayList<>();
+        expectedSecond.add(new Message(3, 1, "third message", 1669947794));
+        Assert.assertEquals(expectedSecond, secondPage.getMessages());
+        Assert.assertNull(secondPage.getNext_cursor());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages with a malformed cursor
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void getMessagesPageInvalidCursor() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("http://localhost:8080/messages?limit=2&cursor=not-a-cursor");
+        Assert.assertEquals(400, response.statusCode());
+    }
+
+    private HttpResponse<String> get(String uri) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(uri))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void postMessage(String text, long timePostedEpoch) throws IOException, InterruptedException {
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{" +
+                        "\"posted_by\":1, " +
+                        "\"message_text\": \"" + text + "\", " +
+                        "\"time_posted_epoch\": " + timePostedEpoch + "}"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+    }
+}
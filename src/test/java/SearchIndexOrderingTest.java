@@ -0,0 +1,116 @@
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import DAO.InMemoryAccountStore;
+import DAO.InMemoryMessageStore;
+import Model.Account;
+import Model.Message;
+import Service.MessageService;
+
+public class SearchIndexOrderingTest {
+    PausingMessageStore messageStore;
+    MessageService messageService;
+
+    /**
+     * Before every test, create an in-memory store holding one account with one message, "first", behind a service.
+     */
+    @Before
+    public void setUp() throws Exception {
+        InMemoryAccountStore accountStore = new InMemoryAccountStore();
+        accountStore.createAccount(new Account("writer", "password"));
+        messageStore = new PausingMessageStore(accountStore);
+        messageService = new MessageService(messageStore);
+        messageService.postMessage(new Message(1, "first", 1669947792L));
+    }
+
+    /**
+     * An update to "alpha" is stored, then held back while an update to "beta" runs to the end
+     *
+     * Expected:
+     *  Once the first update finishes, the index holds "beta", the text the store kept, and not "alpha"
+     */
+    @Test
+    public void slowerUpdateDoesNotIndexLosingText() throws Exception {
+        Thread slow = updateInBackground("alpha");
+        messageService.updateMessageText(1, "beta");
+        finish(slow);
+
+        Assert.assertEquals("beta", messageService.getMessageById(1).getMessage_text());
+        Assert.assertEquals(List.of(1), ids(messageService.searchMessages("beta", 10)));
+        Assert.assertEquals(List.of(), ids(messageService.searchMessages("alpha", 10)));
+    }
+
+    /**
+     * An update to "alpha" is stored, then held back while the message is deleted
+     *
+     * Expected:
+     *  Once the update finishes, the deleted message is still out of the index
+     */
+    @Test
+    public void updateRacingDeleteDoesNotReindex() throws Exception {
+        Thread slow = updateInBackground("alpha");
+        messageService.deleteMessage(1);
+        finish(slow);
+
+        Assert.assertEquals(List.of(), ids(messageService.searchMessages("alpha", 10)));
+        Assert.assertEquals(0, messageService.getSearchIndexSize());
+    }
+
+    // Starts an update that stops once the store has applied it, before the service sees the result
+    private Thread updateInBackground(String text) throws InterruptedException {
+        messageStore.pauseAfterUpdate = new CountDownLatch(1);
+        Thread update = new Thread(() -> {
+            try {
+                messageService.updateMessageText(1, text);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        update.start();
+        Assert.assertTrue(messageStore.updated.await(5, TimeUnit.SECONDS));
+        return update;
+    }
+
+    private void finish(Thread update) throws InterruptedException {
+        messageStore.pauseAfterUpdate.countDown();
+        update.join();
+    }
+
+    private static List<Integer> ids(List<Message> messages) {
+        return messages.stream().map(Message::getMessage_id).collect(Collectors.toList());
+    }
+
+    /**
+     * Holds the first updateMessageText call made while pauseAfterUpdate is set, once the update is applied.
+     */
+    private static final class PausingMessageStore extends InMemoryMessageStore {
+        private final CountDownLatch updated = new CountDownLatch(1);
+        private volatile CountDownLatch pauseAfterUpdate;
+
+        private PausingMessageStore(InMemoryAccountStore accounts) {
+            super(accounts);
+        }
+
+        @Override
+        public Message updateMessageText(int messageId, String messageText) throws SQLException {
+            Message result = super.updateMessageText(messageId, messageText);
+            CountDownLatch pause = pauseAfterUpdate;
+            if (pause != null && updated.getCount() > 0) {
+                updated.countDown();
+                try {
+                    pause.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class SearchMessagesTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Posting three messages, then sending http requests to GET localhost:8080/messages/search with word, phrase
+     * and prefix queries
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the messages matching every clause, newest first
+     */
+    @Test
+    public void searchWordsPhrasesAndPrefixes() throws IOException, InterruptedException {
+        postMessage("Hello big world");
+        postMessage("hello world, again");
+        postMessage("goodbye world");
+
+        Assert.assertEquals(List.of(3, 2), ids(search("hello world")));
+        Assert.assertEquals(List.of(3), ids(search("\"hello world\"")));
+        Assert.assertEquals(List.of(4), ids(search("good* AND world")));
+        Assert.assertEquals(List.of(4, 3), ids(search("world&limit=2")));
+        // The message from the seed script was indexed when the app started
+        Assert.assertEquals(List.of(1), ids(search("test")));
+        Assert.assertEquals(List.of(), ids(search("nothing")));
+    }
+
+    /**
+     * Updating and deleting messages, then searching again
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: results reflect the new text and the deletion straight away
+     */
+    @Test
+    public void searchFollowsUpdatesAndDeletes() throws IOException, InterruptedException {
+        postMessage("first draft");
+        HttpRequest patch = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/2"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"message_text\":\"final version\"}"))
+                .build();
+        webClient.send(patch, HttpResponse.BodyHandlers.ofString());
+        HttpRequest delete = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .DELETE()
+                .build();
+        webClient.send(delete, HttpResponse.BodyHandlers.ofString());
+
+        Assert.assertEquals(List.of(), ids(search("draft")));
+        Assert.assertEquals(List.of(2), ids(search("final")));
+        Assert.assertEquals(List.of(), ids(search("test")));
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/search without a query
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void searchWithoutQuery() throws IOException, InterruptedException {
+        Assert.assertEquals(400, search(null).statusCode());
+    }
+
+    private HttpResponse<String> search(String query) throws IOException, InterruptedException {
+        String uri = "http://localhost:8080/messages/search";
+        if (query != null) {
+            // Anything after & is passed through as further query parameters
+            String[] parts = query.split("&", 2);
+            uri += "?q=" + URLEncoder.encode(parts[0], StandardCharsets.UTF_8) + (parts.length > 1 ? "&" + parts[1] : "");
+        }
+        HttpRequest request = HttpRequest.newBuilder().uri(URI.create(uri)).build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private List<Integer> ids(HttpResponse<String> response) throws IOException {
+        Assert.assertEquals(200, response.statusCode());
+        List<Message> messages = objectMapper.readValue(response.body(), new TypeReference<List<Message>>() {});
+        List<Integer> ids = new ArrayList<>();
+        for (Message message : messages) {
+            ids.add(message.getMessage_id());
+        }
+        return ids;
+    }
+
+    private void postMessage(String text) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"posted_by\":1,\"message_text\":\"" + text +
+                        "\",\"time_posted_epoch\":1669947792}"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+    }
+}
@@ -0,0 +1,125 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Account;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class SessionAuthTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/login, then POST localhost:8080/messages with the token
+     *
+     * Expected Response:
+     *  Status Code: 200 for both, with an X-Session-Token header on the login response
+     *  Response Body: the login body is unchanged; the new message is returned
+     */
+    @Test
+    public void loginTokenAuthorizesPost() throws IOException, InterruptedException {
+        HttpResponse<String> login = login("testuser1", "password");
+        Assert.assertEquals(200, login.statusCode());
+        Assert.assertEquals(new Account(1, "testuser1", "password"),
+                objectMapper.readValue(login.body(), Account.class));
+        String token = login.headers().firstValue("X-Session-Token").orElse(null);
+        Assert.assertNotNull(token);
+
+        HttpResponse<String> response = send("POST", "/messages",
+                "{\"posted_by\":1,\"message_text\":\"hello message\",\"time_posted_epoch\":1669947792}", token);
+
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertEquals(new Message(2, 1, "hello message", 1669947792),
+                objectMapper.readValue(response.body(), Message.class));
+    }
+
+    /**
+     * Sending http requests with an unknown token to POST localhost:8080/messages and DELETE localhost:8080/messages/1
+     *
+     * Expected Response:
+     *  Status Code: 401, and the message is not deleted
+     */
+    @Test
+    public void invalidTokenRejected() throws IOException, InterruptedException {
+        HttpResponse<String> post = send("POST", "/messages",
+                "{\"posted_by\":1,\"message_text\":\"hello message\",\"time_posted_epoch\":1669947792}", "not-a-token");
+        HttpResponse<String> delete = send("DELETE", "/messages/1", null, "not-a-token");
+
+        Assert.assertEquals(401, post.statusCode());
+        Assert.assertEquals(401, delete.statusCode());
+        Assert.assertEquals(200, send("GET", "/messages/1", null, null).statusCode());
+        Assert.assertFalse(send("GET", "/messages/1", null, null).body().isEmpty());
+    }
+
+    /**
+     * Logging in as a second user, then sending http requests with that token to PATCH and DELETE
+     * localhost:8080/messages/1 (posted by testuser1) and to POST localhost:8080/messages as testuser1
+     *
+     * Expected Response:
+     *  Status Code: 403 for all three
+     */
+    @Test
+    public void tokenOnlyActsForItsOwnAccount() throws IOException, InterruptedException {
+        send("POST", "/register", "{\"username\":\"testuser2\",\"password\":\"password\"}", null);
+        String token = login("testuser2", "password").headers().firstValue("X-Session-Token").orElse(null);
+
+        Assert.assertEquals(403, send("PATCH", "/messages/1", "{\"message_text\":\"hijacked\"}", token).statusCode());
+        Assert.assertEquals(403, send("DELETE", "/messages/1", null, token).statusCode());
+        Assert.assertEquals(403, send("POST", "/messages",
+                "{\"posted_by\":1,\"message_text\":\"hello message\",\"time_posted_epoch\":1669947792}", token)
+                .statusCode());
+    }
+
+    private HttpResponse<String> login(String username, String password) throws IOException, InterruptedException {
+        return send("POST", "/login", "{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}", null);
+    }
+
+    private HttpResponse<String> send(String method, String path, String body, String token)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .method(method, body == null
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json");
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return webClient.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
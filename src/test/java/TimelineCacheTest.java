@@ -0,0 +1,92 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class TimelineCacheTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/accounts/1/messages between a post, an update and a delete
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: each read reflects every change made before it, and a repeated read is a cache hit
+     */
+    @Test
+    public void cachedTimelineFollowsChanges() throws IOException, InterruptedException {
+        Message seeded = new Message(1, 1, "test message 1", 1669947792L);
+        Assert.assertEquals(List.of(seeded), timeline());
+        Assert.assertEquals(List.of(seeded), timeline());
+        Assert.assertTrue(send(HttpRequest.newBuilder(URI.create("http://localhost:8080/metrics")).build())
+                .body().contains("cache_requests_total{cache=\"timelines\",result=\"hit\"} 1"));
+
+        send(HttpRequest.newBuilder(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"posted_by\":1,\"message_text\":\"newer\",\"time_posted_epoch\":1669947793}"))
+                .build());
+        Message newer = new Message(2, 1, "newer", 1669947793L);
+        Assert.assertEquals(List.of(newer, seeded), timeline());
+
+        send(HttpRequest.newBuilder(URI.create("http://localhost:8080/messages/1"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"message_text\":\"edited\"}"))
+                .build());
+        Message edited = new Message(1, 1, "edited", 1669947792L);
+        Assert.assertEquals(List.of(newer, edited), timeline());
+
+        send(HttpRequest.newBuilder(URI.create("http://localhost:8080/messages/2")).DELETE().build());
+        Assert.assertEquals(List.of(edited), timeline());
+    }
+
+    private List<Message> timeline() throws IOException, InterruptedException {
+        HttpResponse<String> response = send(HttpRequest.newBuilder(
+                URI.create("http://localhost:8080/accounts/1/messages")).build());
+        Assert.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), new TypeReference<List<Message>>() {});
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        return response;
+    }
+}
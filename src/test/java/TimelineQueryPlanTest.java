@@ -0,0 +1,93 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import DAO.MessageDAO;
+import DAO.TimelineQuery;
+import Util.ConnectionUtil;
+
+public class TimelineQueryPlanTest {
+    private static final int MESSAGES = 20000;
+    private static final Pattern SCAN_COUNT = Pattern.compile("scanCount: (\\d+)");
+
+    /**
+     * Before every test, reset the database and give account 1 a long history, with a second account's messages
+     * mixed in so posted_by alone does not narrow the scan.
+     */
+    @Before
+    public void setUp() throws SQLException {
+        ConnectionUtil.resetTestDatabase();
+        try (Connection conn = ConnectionUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO Account (username, password) VALUES ('testuser2', 'password');");
+            stmt.executeUpdate("INSERT INTO Message (posted_by, message_text, time_posted_epoch) "
+                    + "SELECT MOD(X, 2) + 1, 'history', 1669947792 + X FROM SYSTEM_RANGE(1, " + MESSAGES + ");");
+        }
+    }
+
+    /**
+     * EXPLAIN ANALYZE of the newest-first timeline page GET /accounts/{account_id}/messages?limit=50 runs
+     *
+     * Expected:
+     *  The rows come from message_posted_by_time_idx already in order, so H2 reads only the page and sorts
+     *  nothing
+     */
+    @Test
+    public void newestPageReadsOnlyThePage() throws SQLException {
+        String plan = explain(new TimelineQuery(1, null, null, 50));
+
+        Assert.assertTrue(plan, plan.contains("MESSAGE_POSTED_BY_TIME_IDX"));
+        Assert.assertTrue(plan, plan.contains("index sorted"));
+        Assert.assertTrue(plan, scanCount(plan) <= 51);
+    }
+
+    /**
+     * EXPLAIN ANALYZE of a windowed page, GET /accounts/{account_id}/messages?before=...&limit=50
+     *
+     * Expected:
+     *  The same index serves the window and the order, so H2 reads only the page
+     */
+    @Test
+    public void windowedPageReadsOnlyThePage() throws SQLException {
+        String plan = explain(new TimelineQuery(1, 1669947792L + MESSAGES / 2, null, 50));
+
+        Assert.assertTrue(plan, plan.contains("MESSAGE_POSTED_BY_TIME_IDX"));
+        Assert.assertTrue(plan, plan.contains("index sorted"));
+        Assert.assertTrue(plan, scanCount(plan) <= 51);
+    }
+
+    // H2 counts the row it read to find the page was over, so a page of n rows scans at most n + 1
+    private static int scanCount(String plan) {
+        Matcher matcher = SCAN_COUNT.matcher(plan);
+        Assert.assertTrue(plan, matcher.find());
+        return Integer.parseInt(matcher.group(1));
+    }
+
+    private static String explain(TimelineQuery query) throws SQLException {
+        String sql = MessageDAO.timelineSql(query);
+        try (Connection conn = ConnectionUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("EXPLAIN ANALYZE " + sql)) {
+            int index = 1;
+            stmt.setInt(index++, query.getAccountId());
+            if (query.getBefore() != null) {
+                stmt.setLong(index++, query.getBefore());
+            }
+            if (query.getAfter() != null) {
+                stmt.setLong(index++, query.getAfter());
+            }
+            stmt.setInt(index, query.getLimit());
+            try (ResultSet rs = stmt.executeQuery()) {
+                Assert.assertTrue(rs.next());
+                return rs.getString(1);
+            }
+        }
+    }
+}